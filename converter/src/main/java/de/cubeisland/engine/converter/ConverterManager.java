@@ -62,7 +62,9 @@ import static java.util.Map.Entry;
  */
 public class ConverterManager
 {
-    private ConverterManager parent;
+    private volatile ConverterManager parent;
+    private volatile ParallelConversion parallelConversion;
+    private volatile ClassLoader classLoader;
 
     private Map<Class<?>, Converter> converters = new ConcurrentHashMap<Class<?>, Converter>();
     private Map<Class, Converter> convertersByClass = new ConcurrentHashMap<Class, Converter>();
@@ -198,9 +200,10 @@ public class ConverterManager
     private Converter getConverter(Class clazz)
     {
         Converter converter = this.converters.get(clazz);
-        if (converter == null && this.parent != null)
+        ConverterManager parent = this.parent;
+        if (converter == null && parent != null)
         {
-            converter = this.parent.getConverter(clazz);
+            converter = parent.getConverter(clazz);
         }
         return converter;
     }
@@ -328,6 +331,81 @@ public class ConverterManager
         return null;
     }
 
+    /**
+     * Sets the ClassLoader used to load classes by their name
+     * <p>ConverterManagers falling back to this one use it too unless they have their own
+     *
+     * @param classLoader the ClassLoader or null to use the fallback
+     *
+     * @return fluent interface
+     */
+    public final ConverterManager setClassLoader(ClassLoader classLoader)
+    {
+        this.classLoader = classLoader;
+        return this;
+    }
+
+    /**
+     * Returns the ClassLoader of this or the fallback ConverterManager
+     * <p>Without any ClassLoader set the ClassLoader of the converter library is used
+     *
+     * @return the ClassLoader
+     */
+    public final ClassLoader getClassLoader()
+    {
+        ClassLoader classLoader = this.classLoader;
+        if (classLoader != null)
+        {
+            return classLoader;
+        }
+        ConverterManager parent = this.parent;
+        if (parent != null)
+        {
+            return parent.getClassLoader();
+        }
+        return ConverterManager.class.getClassLoader();
+    }
+
+    /**
+     * Enables converting large collections, maps, arrays and sibling sections in parallel
+     * <p>ConverterManagers falling back to this one use it too unless they have their own
+     *
+     * @param parallelConversion the ParallelConversion or null to convert sequentially
+     *
+     * @return fluent interface
+     */
+    public final ConverterManager setParallelConversion(ParallelConversion parallelConversion)
+    {
+        this.parallelConversion = parallelConversion;
+        return this;
+    }
+
+    /**
+     * Returns the ParallelConversion of this or the fallback ConverterManager
+     *
+     * @return the ParallelConversion or null if converting sequentially
+     */
+    public final ParallelConversion getParallelConversion()
+    {
+        ParallelConversion parallelConversion = this.parallelConversion;
+        ConverterManager parent = this.parent;
+        if (parallelConversion == null && parent != null)
+        {
+            return parent.getParallelConversion();
+        }
+        return parallelConversion;
+    }
+
+    /**
+     * Returns the fallback ConverterManager of this converter
+     *
+     * @return the ConverterManager to fallback to or null
+     */
+    public final ConverterManager getFallback()
+    {
+        return this.parent;
+    }
+
     /**
      * Changes the fallback ConverterManager of this converter
      *
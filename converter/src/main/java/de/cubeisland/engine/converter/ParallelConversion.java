@@ -0,0 +1,237 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.converter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts the elements of large collections, maps and arrays in parallel
+ * <p>The elements are split into chunks that are converted by the threads of an ExecutorService and the calling
+ * thread. The calling thread converts chunks itself while waiting, so nested conversions cannot starve the executor.
+ * The results keep the order of the elements.
+ *
+ * @see ConverterManager#setParallelConversion(ParallelConversion)
+ */
+public final class ParallelConversion
+{
+    public static final int DEFAULT_THRESHOLD = 1000;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int threshold;
+
+    /**
+     * Creates a ParallelConversion for containers of at least {@link #DEFAULT_THRESHOLD} elements
+     *
+     * @param executor    the ExecutorService to run the conversions on
+     * @param parallelism the amount of threads to use at most including the calling thread
+     */
+    public ParallelConversion(ExecutorService executor, int parallelism)
+    {
+        this(executor, parallelism, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a ParallelConversion
+     *
+     * @param executor    the ExecutorService to run the conversions on
+     * @param parallelism the amount of threads to use at most including the calling thread
+     * @param threshold   the minimum amount of elements to convert in parallel
+     */
+    public ParallelConversion(ExecutorService executor, int parallelism, int threshold)
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("The executor must not be null!");
+        }
+        if (parallelism <= 0 || threshold <= 0)
+        {
+            throw new IllegalArgumentException("The parallelism and threshold have to be positive!");
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.threshold = threshold;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * Returns whether given amount of elements is worth converting in parallel
+     *
+     * @param size the amount of elements
+     *
+     * @return true if the size reaches the threshold
+     */
+    public boolean isParallel(int size)
+    {
+        return size >= this.threshold && this.parallelism > 1;
+    }
+
+    /**
+     * Converts all elements using the ParallelConversion of given ConverterManager
+     * <p>The elements are converted on the calling thread if the ConverterManager has no ParallelConversion or there
+     * are too few elements
+     *
+     * @param manager the ConverterManager
+     * @param size    the amount of elements
+     * @param task    the task converting a single element
+     *
+     * @return the converted elements in order
+     */
+    public static Object[] convert(ConverterManager manager, int size, Task task) throws ConversionException
+    {
+        ParallelConversion parallel = manager.getParallelConversion();
+        if (parallel != null && parallel.isParallel(size))
+        {
+            return parallel.convertAll(size, task);
+        }
+        Object[] results = new Object[size];
+        for (int i = 0; i < size; i++)
+        {
+            results[i] = task.convert(i);
+        }
+        return results;
+    }
+
+    /**
+     * Converts all elements in parallel
+     * <p>If conversions fail the exception of the first failed element is thrown
+     *
+     * @param size the amount of elements
+     * @param task the task converting a single element
+     *
+     * @return the converted elements in order
+     */
+    public Object[] convertAll(int size, final Task task) throws ConversionException
+    {
+        final Object[] results = new Object[size];
+        final int chunkSize = Math.max(1, (size + this.parallelism * CHUNKS_PER_THREAD - 1) / (this.parallelism * CHUNKS_PER_THREAD));
+        final int chunks = (size + chunkSize - 1) / chunkSize;
+        final Throwable[] errors = new Throwable[chunks];
+        final AtomicInteger next = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(chunks);
+        Runnable worker = new Runnable()
+        {
+            public void run()
+            {
+                int chunk;
+                while ((chunk = next.getAndIncrement()) < chunks)
+                {
+                    try
+                    {
+                        int end = Math.min(results.length, (chunk + 1) * chunkSize);
+                        for (int i = chunk * chunkSize; i < end; i++)
+                        {
+                            results[i] = task.convert(i);
+                        }
+                    }
+                    catch (Throwable t)
+                    {
+                        errors[chunk] = t;
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+            }
+        };
+        for (int i = Math.min(this.parallelism, chunks) - 1; i > 0; i--)
+        {
+            try
+            {
+                this.executor.execute(worker);
+            }
+            catch (RejectedExecutionException e)
+            {
+                break; // the calling thread converts the rest
+            }
+        }
+        worker.run();
+        awaitUninterruptibly(done);
+        for (Throwable error : errors)
+        {
+            if (error instanceof ConversionException)
+            {
+                throw (ConversionException)error;
+            }
+            if (error instanceof RuntimeException)
+            {
+                throw (RuntimeException)error;
+            }
+            if (error instanceof Error)
+            {
+                throw (Error)error;
+            }
+        }
+        return results;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch)
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                latch.await();
+                break;
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Converts a single element
+     */
+    public interface Task
+    {
+        /**
+         * Converts the element at given index
+         *
+         * @param index the index of the element
+         *
+         * @return the converted element
+         */
+        Object convert(int index) throws ConversionException;
+    }
+}
@@ -22,33 +22,164 @@
  */
 package de.cubeisland.engine.converter.converter;
 
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
 import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.ConverterManager;
 import de.cubeisland.engine.converter.node.Node;
 import de.cubeisland.engine.converter.node.StringNode;
 
-public class ClassConverter extends SimpleConverter<Class<?>>
+/**
+ * Converts classes by their name
+ * <p>Classes are loaded using the ClassLoader of the ConverterManager and cached per ClassLoader.
+ * The cache does not prevent classes or ClassLoaders from being unloaded.
+ * Missing classes are remembered for {@link #MISSING_TTL} milliseconds.
+ *
+ * @see ConverterManager#setClassLoader(ClassLoader)
+ */
+public class ClassConverter implements ClassedConverter<Class<?>>
 {
-	@Override
+	public static final long MISSING_TTL = 5000;
+
+	private final Map<ClassLoader, ConcurrentMap<String, Object>> caches = Collections.synchronizedMap(
+		new WeakHashMap<ClassLoader, ConcurrentMap<String, Object>>());
+	private volatile LoaderCache last;
+
+	public Node toNode(Class<?> object, ConverterManager manager) throws ConversionException
+	{
+		return this.toNode(object);
+	}
+
+	public Class<?> fromNode(Node node, Class<? extends Class<?>> type, ConverterManager manager) throws ConversionException
+	{
+		return this.fromNode(node, manager.getClassLoader());
+	}
+
 	public Node toNode(Class<?> object) throws ConversionException
 	{
 		return StringNode.of(object.getName());
 	}
 
-	@Override
+	/**
+	 * Loads the class using the ClassLoader of this converter
+	 *
+	 * @param node the node containing the class name
+	 *
+	 * @return the class
+	 */
 	public Class<?> fromNode(Node node) throws ConversionException
+	{
+		return this.fromNode(node, ClassConverter.class.getClassLoader());
+	}
+
+	private Class<?> fromNode(Node node, ClassLoader classLoader) throws ConversionException
 	{
 		if (!(node instanceof StringNode))
 		{
 			throw ConversionException.of(this, node, "The node type isn't supported for a class.");
 		}
+		String name = ((StringNode) node).getValue();
+		ConcurrentMap<String, Object> cache = this.getCache(classLoader);
+		Object cached = cache.get(name);
+		if (cached instanceof WeakReference)
+		{
+			Class<?> clazz = (Class<?>) ((WeakReference) cached).get();
+			if (clazz != null)
+			{
+				return clazz;
+			}
+		}
+		else if (cached instanceof Long && System.nanoTime() - (Long) cached < TimeUnit.MILLISECONDS.toNanos(MISSING_TTL))
+		{
+			throw ConversionException.of(this, node, "The class wasn't found.");
+		}
 
 		try
 		{
-			return this.getClass().getClassLoader().loadClass(((StringNode) node).getValue());
+			Class<?> clazz = Class.forName(name, false, classLoader);
+			cache.put(name, new WeakReference<Class<?>>(clazz));
+			return clazz;
 		}
 		catch (ClassNotFoundException e)
 		{
+			cache.put(name, System.nanoTime());
 			throw ConversionException.of(this, node, "The class wasn't found.", e);
 		}
 	}
+
+	/**
+	 * Returns the cache of given ClassLoader
+	 * <p>The cache used last is returned without locking as usually all classes are loaded by the same ClassLoader
+	 */
+	private ConcurrentMap<String, Object> getCache(ClassLoader classLoader)
+	{
+		LoaderCache last = this.last;
+		if (last != null && classLoader != null && last.classLoader.get() == classLoader)
+		{
+			return last.classes;
+		}
+		synchronized (this.caches)
+		{
+			ConcurrentMap<String, Object> cache = this.caches.get(classLoader);
+			if (cache == null)
+			{
+				cache = new ConcurrentHashMap<String, Object>();
+				this.caches.put(classLoader, cache);
+			}
+			this.last = new LoaderCache(classLoader, cache);
+			return cache;
+		}
+	}
+
+	/**
+	 * Returns the cached class or the time it was found missing
+	 *
+	 * @param classLoader the ClassLoader
+	 * @param name        the name of the class
+	 *
+	 * @return the class, the System.nanoTime() it was found missing at or null if nothing is cached
+	 */
+	Object getCached(ClassLoader classLoader, String name)
+	{
+		ConcurrentMap<String, Object> cache = this.caches.get(classLoader);
+		Object cached = cache == null ? null : cache.get(name);
+		if (cached instanceof WeakReference)
+		{
+			return ((WeakReference) cached).get();
+		}
+		return cached;
+	}
+
+	/**
+	 * Clears the cached classes including the missing ones
+	 */
+	public void clearCache()
+	{
+		synchronized (this.caches)
+		{
+			this.caches.clear();
+			this.last = null;
+		}
+	}
+
+	/**
+	 * The cache of the ClassLoader used last, it does not keep the ClassLoader alive
+	 */
+	private static final class LoaderCache
+	{
+		private final WeakReference<ClassLoader> classLoader;
+		private final ConcurrentMap<String, Object> classes;
+
+		private LoaderCache(ClassLoader classLoader, ConcurrentMap<String, Object> classes)
+		{
+			this.classLoader = new WeakReference<ClassLoader>(classLoader);
+			this.classes = classes;
+		}
+	}
 }
@@ -22,6 +22,13 @@
  */
 package de.cubeisland.engine.converter.converter;
 
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 import de.cubeisland.engine.converter.ConversionException;
 import de.cubeisland.engine.converter.ConverterManager;
 import de.cubeisland.engine.converter.node.Node;
@@ -29,9 +36,15 @@ import de.cubeisland.engine.converter.node.StringNode;
 
 /**
  * A converter for generic enums
+ * <p>The constants of each enum are looked up in a table built on first use.
+ * The tables do not prevent enums or their ClassLoaders from being unloaded.
+ * The table used last is read without locking.
  */
 public class EnumConverter implements ClassedConverter<Enum>
 {
+    private final Map<Class, Lookup> lookups = Collections.synchronizedMap(new WeakHashMap<Class, Lookup>());
+    private volatile LastLookup last;
+
     public Node toNode(Enum object, ConverterManager manager) throws ConversionException
     {
         return StringNode.of(object.name());
@@ -39,13 +52,81 @@ public class EnumConverter implements ClassedConverter<Enum>
 
     public Enum fromNode(Node node, Class<? extends Enum> enumClass, ConverterManager manager) throws ConversionException
     {
-        for (Enum enumT : enumClass.getEnumConstants())
+        Enum enumT = this.getLookup(enumClass).get(node.asText());
+        if (enumT == null)
+        {
+            throw ConversionException.of(this, node, "Enum value not found!");
+        }
+        return enumT;
+    }
+
+    private Lookup getLookup(Class<? extends Enum> enumClass)
+    {
+        LastLookup last = this.last;
+        if (last != null && last.enumClass.get() == enumClass)
+        {
+            return last.lookup;
+        }
+        Lookup lookup = this.lookups.get(enumClass);
+        if (lookup == null)
+        {
+            // constants with a body have their own subclass of the enum
+            Class<?> declaringClass = enumClass.isEnum() ? enumClass : enumClass.getSuperclass();
+            lookup = new Lookup((Enum[])declaringClass.getEnumConstants());
+            // building the same table twice does no harm
+            this.lookups.put(enumClass, lookup);
+        }
+        this.last = new LastLookup(enumClass, lookup);
+        return lookup;
+    }
+
+    /**
+     * The table used last referencing its enum weakly
+     */
+    private static final class LastLookup
+    {
+        private final WeakReference<Class> enumClass;
+        private final Lookup lookup;
+
+        private LastLookup(Class enumClass, Lookup lookup)
+        {
+            this.enumClass = new WeakReference<Class>(enumClass);
+            this.lookup = lookup;
+        }
+    }
+
+    /**
+     * Finds the constants of an enum by their name ignoring the case
+     * <p>The constants are referenced weakly so the table does not keep its key alive.
+     * The enum class itself references its constants for as long as it is loaded.
+     */
+    private static final class Lookup
+    {
+        private final Map<String, WeakReference<Enum>> byName = new HashMap<String, WeakReference<Enum>>();
+        private final Map<String, WeakReference<Enum>> byUpperCaseName = new HashMap<String, WeakReference<Enum>>();
+
+        private Lookup(Enum[] constants)
+        {
+            for (Enum constant : constants)
+            {
+                WeakReference<Enum> ref = new WeakReference<Enum>(constant);
+                this.byName.put(constant.name(), ref);
+                String upperCaseName = constant.name().toUpperCase(Locale.ENGLISH);
+                if (!this.byUpperCaseName.containsKey(upperCaseName))
+                {
+                    this.byUpperCaseName.put(upperCaseName, ref); // the first constant wins like before
+                }
+            }
+        }
+
+        private Enum get(String name)
         {
-            if (enumT.name().equalsIgnoreCase(node.asText()))
+            WeakReference<Enum> ref = this.byName.get(name);
+            if (ref == null)
             {
-                return enumT;
+                ref = this.byUpperCaseName.get(name.toUpperCase(Locale.ENGLISH));
             }
+            return ref == null ? null : ref.get();
         }
-        throw ConversionException.of(this, node, "Enum value not found!");
     }
 }
@@ -27,6 +27,8 @@ import java.util.List;
 
 import de.cubeisland.engine.converter.ConversionException;
 import de.cubeisland.engine.converter.ConverterManager;
+import de.cubeisland.engine.converter.ParallelConversion;
+import de.cubeisland.engine.converter.ParallelConversion.Task;
 import de.cubeisland.engine.converter.converter.ClassedConverter;
 import de.cubeisland.engine.converter.node.ListNode;
 import de.cubeisland.engine.converter.node.Node;
@@ -36,7 +38,7 @@ import de.cubeisland.engine.converter.node.Node;
  */
 public class ArrayConverter implements ClassedConverter<Object>
 {
-    public Node toNode(Object array, ConverterManager manager) throws ConversionException
+    public Node toNode(final Object array, final ConverterManager manager) throws ConversionException
     {
         if (!array.getClass().isArray())
         {
@@ -45,15 +47,29 @@ public class ArrayConverter implements ClassedConverter<Object>
 
         ListNode result = ListNode.emptyList();
         int len = Array.getLength(array);
+        ParallelConversion parallel = manager.getParallelConversion();
+        if (parallel != null && parallel.isParallel(len))
+        {
+            for (Object node : parallel.convertAll(len, new Task()
+            {
+                public Object convert(int index) throws ConversionException
+                {
+                    return manager.convertToNode(Array.get(array, index));
+                }
+            }))
+            {
+                result.addNode((Node)node);
+            }
+            return result;
+        }
         for (int i = 0; i < len; i++)
         {
             result.addNode(manager.convertToNode(Array.get(array, i)));
         }
-
         return result;
     }
 
-    public Object fromNode(Node node, Class type, ConverterManager manager) throws ConversionException
+    public Object fromNode(Node node, Class type, final ConverterManager manager) throws ConversionException
     {
         if (!(node instanceof ListNode))
         {
@@ -64,13 +80,29 @@ public class ArrayConverter implements ClassedConverter<Object>
         {
             throw ConversionException.of(this, node, "Given type is not an array: " + type.getName());
         }
-        List<Node> listedNodes = ((ListNode)node).getValue();
+        final List<Node> listedNodes = ((ListNode)node).getValue();
+        final Class componentType = arrayType;
         Object array = Array.newInstance(arrayType, listedNodes.size());
+        ParallelConversion parallel = manager.getParallelConversion();
+        if (parallel != null && parallel.isParallel(listedNodes.size()))
+        {
+            Object[] converted = parallel.convertAll(listedNodes.size(), new Task()
+            {
+                public Object convert(int index) throws ConversionException
+                {
+                    return manager.convertFromNode(listedNodes.get(index), componentType);
+                }
+            });
+            for (int i = 0; i < converted.length; i++)
+            {
+                Array.set(array, i, converted[i]);
+            }
+            return array;
+        }
         for (int i = 0; i < listedNodes.size(); i++)
         {
             Array.set(array, i, manager.convertFromNode(listedNodes.get(i), arrayType));
         }
-
         return array;
     }
 }
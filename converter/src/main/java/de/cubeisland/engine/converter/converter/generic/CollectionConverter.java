@@ -25,15 +25,19 @@ package de.cubeisland.engine.converter.converter.generic;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import de.cubeisland.engine.converter.ConversionException;
 import de.cubeisland.engine.converter.ConverterManager;
+import de.cubeisland.engine.converter.ParallelConversion;
+import de.cubeisland.engine.converter.ParallelConversion.Task;
 import de.cubeisland.engine.converter.node.ListNode;
 import de.cubeisland.engine.converter.node.Node;
 
@@ -61,13 +65,29 @@ public class CollectionConverter implements GenericConverter<Collection>
         return new HashSet();
     }
 
-    public ListNode toNode(Collection collection, ConverterManager manager) throws ConversionException
+    public ListNode toNode(Collection collection, final ConverterManager manager) throws ConversionException
     {
         ListNode result = ListNode.emptyList();
         if (collection == null || collection.isEmpty())
         {
             return result;
         }
+        ParallelConversion parallel = manager.getParallelConversion();
+        if (parallel != null && parallel.isParallel(collection.size()))
+        {
+            final Object[] values = collection.toArray();
+            for (Object node : parallel.convertAll(values.length, new Task()
+            {
+                public Object convert(int index) throws ConversionException
+                {
+                    return manager.convertToNode(values[index]);
+                }
+            }))
+            {
+                result.addNode((Node)node);
+            }
+            return result;
+        }
         for (Object value : collection)
         {
             result.addNode(manager.convertToNode(value));
@@ -100,15 +120,26 @@ public class CollectionConverter implements GenericConverter<Collection>
     }
 
     @SuppressWarnings("unchecked")
-    private Collection fillCollection(Collection result, ParameterizedType pType, ListNode listNode, ConverterManager manager) throws ConversionException
+    private Collection fillCollection(Collection result, ParameterizedType pType, ListNode listNode, final ConverterManager manager) throws ConversionException
     {
-        Type subType = pType.getActualTypeArguments()[0];
-
-        for (Node node : listNode.getValue())
+        final Type subType = pType.getActualTypeArguments()[0];
+        final List<Node> nodes = listNode.getValue();
+        ParallelConversion parallel = manager.getParallelConversion();
+        if (parallel != null && parallel.isParallel(nodes.size()))
+        {
+            result.addAll(Arrays.asList(parallel.convertAll(nodes.size(), new Task()
+            {
+                public Object convert(int index) throws ConversionException
+                {
+                    return manager.convertFromNode(nodes.get(index), subType);
+                }
+            })));
+            return result;
+        }
+        for (Node node : nodes)
         {
             result.add(manager.convertFromNode(node, subType));
         }
-
         return result;
     }
 }
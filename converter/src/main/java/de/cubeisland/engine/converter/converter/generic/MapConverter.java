@@ -32,6 +32,8 @@ import java.util.Set;
 
 import de.cubeisland.engine.converter.ConversionException;
 import de.cubeisland.engine.converter.ConverterManager;
+import de.cubeisland.engine.converter.ParallelConversion;
+import de.cubeisland.engine.converter.ParallelConversion.Task;
 import de.cubeisland.engine.converter.node.MapNode;
 import de.cubeisland.engine.converter.node.Node;
 import de.cubeisland.engine.converter.node.StringNode;
@@ -61,7 +63,7 @@ public class MapConverter implements GenericConverter<Map>
         }
     }
 
-    public Node toNode(Map map, ConverterManager manager) throws ConversionException
+    public Node toNode(Map map, final ConverterManager manager) throws ConversionException
     {
         MapNode result = MapNode.emptyMap();
         if (map == null || map.isEmpty())
@@ -71,6 +73,23 @@ public class MapConverter implements GenericConverter<Map>
 
         @SuppressWarnings("unchecked")
         Set<Entry> entrySet = map.entrySet();
+        ParallelConversion parallel = manager.getParallelConversion();
+        if (parallel != null && parallel.isParallel(entrySet.size()))
+        {
+            final Entry[] entries = entrySet.toArray(new Entry[entrySet.size()]);
+            Object[] converted = parallel.convertAll(entries.length, new Task()
+            {
+                public Object convert(int index) throws ConversionException
+                {
+                    return new Node[]{manager.convertToNode(entries[index].getKey()), manager.convertToNode(entries[index].getValue())};
+                }
+            });
+            for (Object nodes : converted)
+            {
+                result.set(((Node[])nodes)[0].asText(), ((Node[])nodes)[1]);
+            }
+            return result;
+        }
         for (Entry entry : entrySet)
         {
             Node keyNode = manager.convertToNode(entry.getKey());
@@ -104,13 +123,34 @@ public class MapConverter implements GenericConverter<Map>
     }
 
     @SuppressWarnings("unchecked")
-    private Map fillMap(Map result, ParameterizedType pType, MapNode mapNode,
-                        ConverterManager manager) throws ConversionException
+    private Map fillMap(Map result, ParameterizedType pType, final MapNode mapNode,
+                        final ConverterManager manager) throws ConversionException
     {
-        Type keyType = pType.getActualTypeArguments()[0];
-        Type valType = pType.getActualTypeArguments()[1];
+        final Type keyType = pType.getActualTypeArguments()[0];
+        final Type valType = pType.getActualTypeArguments()[1];
 
-        for (Entry<String, Node> entry : mapNode.getMappedNodes().entrySet())
+        Set<Entry<String, Node>> entrySet = mapNode.getMappedNodes().entrySet();
+        ParallelConversion parallel = manager.getParallelConversion();
+        if (parallel != null && parallel.isParallel(entrySet.size()))
+        {
+            final Entry[] entries = entrySet.toArray(new Entry[entrySet.size()]);
+            Object[] converted = parallel.convertAll(entries.length, new Task()
+            {
+                public Object convert(int index) throws ConversionException
+                {
+                    // preserve Casing in Key
+                    StringNode keyNode = new StringNode(mapNode.getOriginalKey((String)entries[index].getKey()));
+                    return new Object[]{manager.convertFromNode(keyNode, keyType),
+                                        manager.convertFromNode((Node)entries[index].getValue(), valType)};
+                }
+            });
+            for (Object entry : converted)
+            {
+                result.put(((Object[])entry)[0], ((Object[])entry)[1]);
+            }
+            return result;
+        }
+        for (Entry<String, Node> entry : entrySet)
         {
             // preserve Casing in Key
             StringNode keyNode = new StringNode(mapNode.getOriginalKey(entry.getKey()));
@@ -22,6 +22,7 @@
  */
 package de.cubeisland.engine.converter;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Type;
 import java.sql.Date;
 import java.util.ArrayList;
@@ -29,13 +30,19 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
+import de.cubeisland.engine.converter.converter.EnumConverter;
 import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.StringNode;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 public class ConverterManagerTest
 {
@@ -71,6 +78,71 @@ public class ConverterManagerTest
         check(ConverterManagerTest.class);
     }
 
+    @Test
+    public void testEnumConverter() throws ConversionException
+    {
+        check(TimeUnit.SECONDS);
+        assertEquals(TimeUnit.SECONDS, manager.convertFromNode(StringNode.of("seconds"), TimeUnit.class));
+    }
+
+    @Test(expected = ConversionException.class)
+    public void testUnknownEnumConstant() throws ConversionException
+    {
+        manager.convertFromNode(StringNode.of("fortnights"), TimeUnit.class);
+    }
+
+    @Test
+    public void testAlternatingEnums() throws ConversionException
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            assertEquals(TimeUnit.DAYS, manager.convertFromNode(StringNode.of("days"), TimeUnit.class));
+            assertEquals(Isolated.FIRST, manager.convertFromNode(StringNode.of("first"), Isolated.class));
+        }
+    }
+
+    @Test
+    public void testEnumLookupDoesNotKeepEnumLoaded() throws Exception
+    {
+        EnumConverter converter = new EnumConverter();
+        ClassLoader loader = new IsolatingClassLoader(Isolated.class.getName());
+        Class enumClass = loader.loadClass(Isolated.class.getName());
+        assertNotSame(Isolated.class, enumClass);
+        @SuppressWarnings("unchecked")
+        Enum constant = converter.fromNode(StringNode.of("second"), enumClass, manager);
+        assertEquals("SECOND", constant.name());
+        WeakReference<ClassLoader> ref = new WeakReference<ClassLoader>(loader);
+        loader = null;
+        enumClass = null;
+        constant = null;
+        assertTrue(IsolatingClassLoader.collected(ref));
+    }
+
+    enum Isolated
+    {
+        FIRST,
+        SECOND
+    }
+
+    @Test
+    public void testClassLoader() throws ConversionException
+    {
+        final AtomicInteger loaded = new AtomicInteger();
+        manager.setClassLoader(new ClassLoader(getClass().getClassLoader())
+        {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+            {
+                loaded.incrementAndGet();
+                return super.loadClass(name, resolve);
+            }
+        });
+        Node node = StringNode.of(ConverterManagerTest.class.getName());
+        assertEquals(ConverterManagerTest.class, manager.convertFromNode(node, Class.class));
+        assertEquals(ConverterManagerTest.class, manager.convertFromNode(node, Class.class));
+        assertEquals(1, loaded.get());
+    }
+
     List<String> list = new ArrayList<String>();
     Map<String, String> map = new HashMap<String, String>();
     String[] array = {"TEST"};
@@ -0,0 +1,106 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.converter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+
+/**
+ * Defines its own copy of one class so the copy can be unloaded together with this ClassLoader
+ */
+public class IsolatingClassLoader extends ClassLoader
+{
+    private final String isolated;
+
+    public IsolatingClassLoader(String isolated)
+    {
+        super(IsolatingClassLoader.class.getClassLoader());
+        this.isolated = isolated;
+    }
+
+    @Override
+    protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+    {
+        if (!name.equals(this.isolated))
+        {
+            return super.loadClass(name, resolve);
+        }
+        Class<?> clazz = this.findLoadedClass(name);
+        if (clazz == null)
+        {
+            byte[] bytes = this.read(name.replace('.', '/') + ".class");
+            clazz = this.defineClass(name, bytes, 0, bytes.length);
+        }
+        return clazz;
+    }
+
+    private byte[] read(String resource) throws ClassNotFoundException
+    {
+        InputStream in = this.getParent().getResourceAsStream(resource);
+        if (in == null)
+        {
+            throw new ClassNotFoundException(resource);
+        }
+        try
+        {
+            try
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1)
+                {
+                    out.write(buffer, 0, read);
+                }
+                return out.toByteArray();
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new ClassNotFoundException(resource, e);
+        }
+    }
+
+    /**
+     * Runs the garbage collector until the referent got collected or a few attempts failed
+     *
+     * @param ref the reference to the object that should be collected
+     *
+     * @return true if the object got collected
+     */
+    public static boolean collected(WeakReference<?> ref) throws InterruptedException
+    {
+        for (int i = 0; i < 50 && ref.get() != null; i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return ref.get() == null;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.converter;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.cubeisland.engine.converter.ParallelConversion.Task;
+import de.cubeisland.engine.converter.node.Node;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelConversionTest
+{
+    private static final int SIZE = 5000;
+
+    private ExecutorService executor;
+    private ConverterManager sequential;
+    private ConverterManager parallel;
+
+    List<Integer> list = new ArrayList<Integer>();
+    Map<String, Long> map = new LinkedHashMap<String, Long>();
+    String[] array = new String[SIZE];
+
+    @Before
+    public void setUp() throws Exception
+    {
+        executor = Executors.newFixedThreadPool(3);
+        sequential = ConverterManager.defaultManager();
+        parallel = ConverterManager.defaultManager();
+        parallel.setParallelConversion(new ParallelConversion(executor, 4, 2));
+        for (int i = 0; i < SIZE; i++)
+        {
+            list.add(i);
+            map.put("key" + i, (long)i * i);
+            array[i] = "value" + i;
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testOrderIsPreserved() throws ConversionException
+    {
+        ParallelConversion conversion = parallel.getParallelConversion();
+        for (int size : new int[]{2, 3, 17, 999, 1000, 1001, SIZE})
+        {
+            Object[] results = conversion.convertAll(size, new Task()
+            {
+                public Object convert(int index)
+                {
+                    return index * 2;
+                }
+            });
+            assertEquals(size, results.length);
+            for (int i = 0; i < size; i++)
+            {
+                assertEquals(i * 2, results[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testSequentialBelowThreshold() throws ConversionException
+    {
+        final Thread caller = Thread.currentThread();
+        Object[] results = ParallelConversion.convert(parallel, 1, new Task()
+        {
+            public Object convert(int index)
+            {
+                return Thread.currentThread() == caller;
+            }
+        });
+        assertArrayEquals(new Object[]{true}, results);
+    }
+
+    @Test
+    public void testMatchesSequential() throws Exception
+    {
+        check(list, type("list"));
+        check(map, type("map"));
+        check(array, String[].class);
+    }
+
+    private Type type(String field) throws NoSuchFieldException
+    {
+        return ParallelConversionTest.class.getDeclaredField(field).getGenericType();
+    }
+
+    private void check(Object value, Type type) throws ConversionException
+    {
+        Node expected = sequential.convertToNode(value);
+        Node node = parallel.convertToNode(value);
+        assertEquals(expected.asString(), node.asString());
+        Object fromSequential = sequential.convertFromNode(expected, type);
+        Object fromParallel = parallel.convertFromNode(node, type);
+        if (value instanceof Object[])
+        {
+            assertArrayEquals((Object[])value, (Object[])fromParallel);
+            assertArrayEquals((Object[])fromSequential, (Object[])fromParallel);
+        }
+        else
+        {
+            assertEquals(value, fromParallel);
+            assertEquals(fromSequential, fromParallel);
+            // the iteration order is kept as well
+            assertEquals(Arrays.asList(toArray(fromSequential)), Arrays.asList(toArray(fromParallel)));
+        }
+    }
+
+    private static Object[] toArray(Object container)
+    {
+        if (container instanceof Map)
+        {
+            return ((Map)container).entrySet().toArray();
+        }
+        return ((List)container).toArray();
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.converter.converter;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.ConverterManager;
+import de.cubeisland.engine.converter.IsolatingClassLoader;
+import de.cubeisland.engine.converter.node.StringNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClassConverterTest
+{
+    private static final String MISSING = "de.cubeisland.engine.converter.DoesNotExist";
+
+    private ClassConverter converter;
+    private CountingClassLoader loader;
+    private ConverterManager manager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        converter = new ClassConverter();
+        loader = new CountingClassLoader();
+        manager = ConverterManager.defaultManager();
+        manager.setClassLoader(loader);
+    }
+
+    @Test
+    public void testClassIsCached() throws ConversionException
+    {
+        String name = ClassConverterTest.class.getName();
+        assertNull(converter.getCached(loader, name));
+        assertSame(ClassConverterTest.class, converter.fromNode(StringNode.of(name), null, manager));
+        assertSame(ClassConverterTest.class, converter.getCached(loader, name));
+        assertSame(ClassConverterTest.class, converter.fromNode(StringNode.of(name), null, manager));
+        assertEquals(1, loader.loads.get());
+        // other ClassLoaders have their own cache
+        assertNull(converter.getCached(ClassConverterTest.class.getClassLoader(), name));
+
+        converter.clearCache();
+        assertNull(converter.getCached(loader, name));
+    }
+
+    @Test
+    public void testMissingClassIsRemembered() throws ConversionException
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            try
+            {
+                converter.fromNode(StringNode.of(MISSING), null, manager);
+                fail("A missing class was converted");
+            }
+            catch (ConversionException ignored)
+            {
+            }
+        }
+        // the JVM does not remember failed lookups, so only the cache prevents asking the ClassLoader again
+        assertEquals(1, loader.loads.get());
+        assertTrue(converter.getCached(loader, MISSING) instanceof Long);
+
+        converter.clearCache();
+        try
+        {
+            converter.fromNode(StringNode.of(MISSING), null, manager);
+            fail("A missing class was converted");
+        }
+        catch (ConversionException ignored)
+        {
+        }
+        assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void testClassLoaderCanBeCollected() throws Exception
+    {
+        ClassLoader isolating = new IsolatingClassLoader(Isolated.class.getName());
+        manager.setClassLoader(isolating);
+        Class<?> clazz = converter.fromNode(StringNode.of(Isolated.class.getName()), null, manager);
+        assertNotSame(Isolated.class, clazz);
+        assertSame(isolating, clazz.getClassLoader());
+        assertSame(clazz, converter.getCached(isolating, Isolated.class.getName()));
+
+        WeakReference<ClassLoader> ref = new WeakReference<ClassLoader>(isolating);
+        manager.setClassLoader(loader);
+        isolating = null;
+        clazz = null;
+        assertTrue(IsolatingClassLoader.collected(ref));
+    }
+
+    static class Isolated
+    {
+    }
+
+    /**
+     * Counts the classes requested from it while every class is defined by its parent
+     */
+    private static class CountingClassLoader extends ClassLoader
+    {
+        private final AtomicInteger loads = new AtomicInteger();
+
+        private CountingClassLoader()
+        {
+            super(ClassConverterTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+        {
+            loads.incrementAndGet();
+            return super.loadClass(name, resolve);
+        }
+    }
+}
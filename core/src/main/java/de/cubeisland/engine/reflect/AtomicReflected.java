@@ -0,0 +1,156 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds a Reflected that gets replaced as a whole when reloading
+ * <p>A reload loads into a new instance and publishes it atomically once it is complete, so readers never see a
+ * Reflected with a mix of old and new values. Reading is lock-free.
+ * <p>The published instances must not be modified, use {@link #set(Reflected)} with a new instance instead.
+ *
+ * @param <T> the type of the Reflected
+ */
+public class AtomicReflected<T extends Reflected>
+{
+    private final AtomicReference<Snapshot<T>> snapshot;
+
+    /**
+     * Creates an AtomicReflected initially holding given Reflected
+     *
+     * @param reflected the Reflected
+     */
+    public AtomicReflected(T reflected)
+    {
+        if (reflected == null)
+        {
+            throw new IllegalArgumentException("The reflected must not be null!");
+        }
+        this.snapshot = new AtomicReference<Snapshot<T>>(new Snapshot<T>(reflected, 0));
+    }
+
+    /**
+     * Returns the current Reflected
+     *
+     * @return the Reflected
+     */
+    public T get()
+    {
+        return this.snapshot.get().reflected;
+    }
+
+    /**
+     * Returns the modification count increasing every time a new Reflected got published
+     * <p>Caches derived from the Reflected can compare it to find out if they are outdated
+     *
+     * @return the modification count
+     */
+    public long getModCount()
+    {
+        return this.snapshot.get().modCount;
+    }
+
+    /**
+     * Publishes a new Reflected
+     *
+     * @param reflected the new Reflected
+     *
+     * @return the new modification count
+     */
+    public long set(T reflected)
+    {
+        if (reflected == null)
+        {
+            throw new IllegalArgumentException("The reflected must not be null!");
+        }
+        while (true)
+        {
+            Snapshot<T> current = this.snapshot.get();
+            Snapshot<T> next = new Snapshot<T>(reflected, current.modCount + 1);
+            if (this.snapshot.compareAndSet(current, next))
+            {
+                return next.modCount;
+            }
+        }
+    }
+
+    /**
+     * Loads a new Reflected from the target of the current one and publishes it
+     *
+     * @return the published Reflected
+     *
+     * @see #reload(boolean)
+     */
+    public T reload()
+    {
+        return this.reload(false);
+    }
+
+    /**
+     * Loads a new Reflected from the target of the current one and publishes it
+     * <p>The new Reflected is only published and saved if it was loaded. If the target is missing or cannot be
+     * parsed the current Reflected stays published and is returned. With the strict exception policy a target that
+     * cannot be parsed throws instead.
+     *
+     * @param save true if the new Reflected should be saved after loading
+     *
+     * @return the published Reflected
+     *
+     * @see Reflected#reload(boolean)
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T reload(boolean save)
+    {
+        T current = this.get();
+        T loaded = (T)current.getReflector().create(current.getClass());
+        loaded.setTarget(current.getTarget());
+        if (current.getDefault() != current)
+        {
+            loaded.setDefault(current.getDefault());
+        }
+        if (!loaded.loadFrom(loaded.getTarget()))
+        {
+            return current;
+        }
+        if (save)
+        {
+            loaded.updateInheritance();
+            loaded.save();
+        }
+        this.set(loaded);
+        return loaded;
+    }
+
+    private static final class Snapshot<T>
+    {
+        private final T reflected;
+        private final long modCount;
+
+        private Snapshot(T reflected, long modCount)
+        {
+            this.reflected = reflected;
+            this.modCount = modCount;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of loading or saving many reflected at once
+ * <p>The reflected are in the order of the given files. Files that failed are collected with their error instead.
+ * Everything is kept by the index of the input, so a file given twice is reported twice.
+ */
+public class BulkResult<T extends ReflectedFile>
+{
+    private final List<File> files;
+    private final List<T> reflected;
+    private final Map<Integer, RuntimeException> errors;
+
+    BulkResult(List<File> files, List<T> reflected, List<RuntimeException> errors)
+    {
+        this.files = Collections.unmodifiableList(files);
+        this.reflected = Collections.unmodifiableList(reflected);
+        Map<Integer, RuntimeException> byIndex = new LinkedHashMap<Integer, RuntimeException>();
+        for (int i = 0; i < errors.size(); i++)
+        {
+            if (errors.get(i) != null)
+            {
+                byIndex.put(i, errors.get(i));
+            }
+        }
+        this.errors = Collections.unmodifiableMap(byIndex);
+    }
+
+    /**
+     * Returns the files in the given order
+     *
+     * @return the files
+     */
+    public List<File> getFiles()
+    {
+        return files;
+    }
+
+    /**
+     * Returns the reflected in the order of the files, null for files that failed
+     *
+     * @return the reflected
+     */
+    public List<T> getReflected()
+    {
+        return reflected;
+    }
+
+    /**
+     * Returns the errors by the index of the failed file in the order of the files
+     *
+     * @return the errors
+     *
+     * @see #getFiles()
+     */
+    public Map<Integer, RuntimeException> getErrors()
+    {
+        return errors;
+    }
+
+    /**
+     * Returns the error of the file at given index
+     *
+     * @param index the index of the file
+     *
+     * @return the error or null if the file did not fail
+     */
+    public RuntimeException getError(int index)
+    {
+        return errors.get(index);
+    }
+
+    public boolean hasErrors()
+    {
+        return !errors.isEmpty();
+    }
+}
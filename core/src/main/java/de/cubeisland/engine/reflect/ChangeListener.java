@@ -0,0 +1,44 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect;
+
+import java.util.Set;
+
+/**
+ * Gets notified when a watched {@link ReflectedFile} got reloaded after its file changed
+ *
+ * @param <T> the type of the Reflected
+ *
+ * @see ReflectedFile#watch(Class, ChangeListener)
+ */
+public interface ChangeListener<T extends ReflectedFile>
+{
+    /**
+     * Called after the reflected got reloaded from its changed file
+     * <p>This is called on the watcher thread and only if at least one value changed
+     *
+     * @param reflected the reloaded reflected
+     * @param changed   the lower-cased paths of the changed values, nested sections are separated by a dot
+     */
+    void onChange(T reflected, Set<String> changed);
+}
@@ -0,0 +1,363 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.reflect.codec.FileCodec;
+
+import static de.cubeisland.engine.reflect.Reflector.LOGGER;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Reloads watched {@link ReflectedFile} when their file changes
+ * <p>Files are polled for their modification time and size. A change is applied once the file did not change for a
+ * whole interval, so editors writing a file in several steps cause a single reload.
+ * <p>The file is loaded into a new instance first and only the changed paths are reported to the listeners.
+ * A file failing to load is logged and leaves the reflected untouched.
+ */
+final class FileWatcher
+{
+    static final long DEFAULT_INTERVAL = 500;
+
+    private final Reflector reflector;
+    private final ConcurrentMap<ReflectedFile, Watch> watches = new ConcurrentHashMap<ReflectedFile, Watch>();
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> task;
+    private volatile long interval = DEFAULT_INTERVAL;
+
+    FileWatcher(Reflector reflector)
+    {
+        this.reflector = reflector;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "ReflecT-Watcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.schedule();
+    }
+
+    synchronized void setInterval(long interval)
+    {
+        if (interval <= 0)
+        {
+            throw new IllegalArgumentException("The interval has to be positive!");
+        }
+        this.interval = interval;
+        this.schedule();
+    }
+
+    private synchronized void schedule()
+    {
+        if (this.task != null)
+        {
+            this.task.cancel(false);
+        }
+        this.task = this.executor.scheduleWithFixedDelay(new Runnable()
+        {
+            public void run()
+            {
+                poll();
+            }
+        }, this.interval, this.interval, TimeUnit.MILLISECONDS);
+    }
+
+    <T extends ReflectedFile> void watch(Class<T> clazz, T reflected, ChangeListener<? super T> listener)
+    {
+        if (reflected.getFile() == null)
+        {
+            throw new IllegalArgumentException("A reflected cannot be watched without a file!");
+        }
+        Watch watch = new Watch(reflected);
+        Watch old = this.watches.putIfAbsent(reflected, watch);
+        if (old != null)
+        {
+            watch = old;
+        }
+        watch.listeners.add(new Listener<T>(clazz, listener));
+    }
+
+    /**
+     * Remembers the state of the file the reflected just saved into so the save does not cause a reload
+     *
+     * @param reflected the reflected
+     * @param file      the file it saved into
+     */
+    void saved(ReflectedFile reflected, File file)
+    {
+        Watch watch = this.watches.get(reflected);
+        if (watch != null && file.equals(reflected.getFile()))
+        {
+            watch.saved(file);
+        }
+    }
+
+    void unwatch(ReflectedFile reflected)
+    {
+        this.watches.remove(reflected);
+    }
+
+    void shutdown()
+    {
+        this.executor.shutdownNow();
+        this.watches.clear();
+    }
+
+    private void poll()
+    {
+        long now = System.currentTimeMillis();
+        for (Iterator<Entry<ReflectedFile, Watch>> it = this.watches.entrySet().iterator(); it.hasNext(); )
+        {
+            Entry<ReflectedFile, Watch> entry = it.next();
+            try
+            {
+                entry.getValue().poll(now, this.interval);
+            }
+            catch (RuntimeException e)
+            {
+                LOGGER.log(WARNING, "Failed to reload " + entry.getKey().getFile(), e);
+            }
+        }
+    }
+
+    /**
+     * Collects the paths of all values that differ between the two nodes
+     *
+     * @param path    the path of the nodes
+     * @param oldNode the old node
+     * @param newNode the new node
+     * @param changed the set to add the changed paths to
+     */
+    static void diff(String path, Node oldNode, Node newNode, Set<String> changed)
+    {
+        if (oldNode instanceof MapNode && newNode instanceof MapNode)
+        {
+            String prefix = path.isEmpty() ? "" : path + ".";
+            MapNode oldMap = (MapNode)oldNode;
+            MapNode newMap = (MapNode)newNode;
+            for (Entry<String, Node> entry : oldMap.getMappedNodes().entrySet())
+            {
+                diff(prefix + entry.getKey(), entry.getValue(), newMap.getMappedNodes().get(entry.getKey()), changed);
+            }
+            for (Entry<String, Node> entry : newMap.getMappedNodes().entrySet())
+            {
+                if (!oldMap.getMappedNodes().containsKey(entry.getKey()))
+                {
+                    changed.add(prefix + entry.getKey());
+                }
+            }
+        }
+        else if (!isEqual(oldNode, newNode))
+        {
+            changed.add(path);
+        }
+    }
+
+    private static boolean isEqual(Node a, Node b)
+    {
+        if (a == null || b == null || a.getClass() != b.getClass())
+        {
+            return a == b;
+        }
+        if (a instanceof MapNode)
+        {
+            Set<String> changed = new LinkedHashSet<String>();
+            diff("", a, b, changed);
+            return changed.isEmpty();
+        }
+        if (a instanceof ListNode)
+        {
+            List<Node> aList = ((ListNode)a).getValue();
+            List<Node> bList = ((ListNode)b).getValue();
+            if (aList.size() != bList.size())
+            {
+                return false;
+            }
+            for (int i = 0; i < aList.size(); i++)
+            {
+                if (!isEqual(aList.get(i), bList.get(i)))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return a.asText().equals(b.asText());
+    }
+
+    private final class Watch
+    {
+        private final ReflectedFile reflected;
+        private final Set<Listener<?>> listeners = new CopyOnWriteArraySet<Listener<?>>();
+        private long loadedModified;
+        private long loadedLength;
+        private long seenModified;
+        private long seenLength;
+        private long seenAt;
+
+        private Watch(ReflectedFile reflected)
+        {
+            this.reflected = reflected;
+            File file = reflected.getFile();
+            this.loadedModified = this.seenModified = file.lastModified();
+            this.loadedLength = this.seenLength = file.length();
+        }
+
+        private synchronized void saved(File file)
+        {
+            this.loadedModified = this.seenModified = file.lastModified();
+            this.loadedLength = this.seenLength = file.length();
+        }
+
+        private void poll(long now, long interval)
+        {
+            File file = this.reflected.getFile();
+            if (this.changed(file, now, interval) && file.exists())
+            {
+                this.reload(file);
+            }
+        }
+
+        /**
+         * Updates the seen state of the file and returns whether a settled change has to be loaded
+         */
+        private synchronized boolean changed(File file, long now, long interval)
+        {
+            long modified = file.lastModified();
+            long length = file.length();
+            if (modified != this.seenModified || length != this.seenLength)
+            {
+                this.seenModified = modified;
+                this.seenLength = length;
+                this.seenAt = now;
+                return false;
+            }
+            if ((modified == this.loadedModified && length == this.loadedLength) || now - this.seenAt < interval)
+            {
+                return false;
+            }
+            this.loadedModified = modified;
+            this.loadedLength = length;
+            return true;
+        }
+
+        private void reload(File file)
+        {
+            FileCodec codec = (FileCodec)this.reflected.getCodec();
+            ReflectedFile loaded = reflector.create(this.reflected.getClass());
+            if (this.reflected.getDefault() != this.reflected)
+            {
+                loaded.setDefault(this.reflected.getDefault());
+            }
+            MapNode loadedNode;
+            try
+            {
+                loadedNode = codec.loadNode(loaded, file);
+            }
+            catch (ConversionException e)
+            {
+                LOGGER.log(WARNING, "Could not reload " + file + " keeping the current values", e);
+                return;
+            }
+            catch (IOException e)
+            {
+                LOGGER.log(WARNING, "Could not reload " + file + " keeping the current values", e);
+                return;
+            }
+            loaded.onLoad();
+            codec.fillReflected(loaded, loadedNode);
+            loaded.onLoaded(file);
+            MapNode newNode = codec.convertReflected(loaded);
+            Set<String> changed = new LinkedHashSet<String>();
+            synchronized (this.reflected)
+            {
+                diff("", codec.convertReflected(this.reflected), newNode, changed);
+                if (changed.isEmpty())
+                {
+                    return;
+                }
+                this.reflected.onLoad();
+                codec.fillReflected(this.reflected, newNode);
+                this.reflected.onLoaded(file);
+            }
+            for (Listener<?> listener : this.listeners)
+            {
+                listener.onChange(this.reflected, changed);
+            }
+        }
+    }
+
+    /**
+     * A ChangeListener together with the class of the reflected it accepts
+     */
+    private static final class Listener<T extends ReflectedFile>
+    {
+        private final Class<T> clazz;
+        private final ChangeListener<? super T> listener;
+
+        private Listener(Class<T> clazz, ChangeListener<? super T> listener)
+        {
+            this.clazz = clazz;
+            this.listener = listener;
+        }
+
+        private void onChange(ReflectedFile reflected, Set<String> changed)
+        {
+            this.listener.onChange(this.clazz.cast(reflected), changed);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof Listener && this.listener.equals(((Listener<?>)o).listener);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.listener.hashCode();
+        }
+    }
+}
@@ -30,9 +30,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
+import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.node.MapNode;
 import de.cubeisland.engine.reflect.codec.FileCodec;
+import de.cubeisland.engine.reflect.exception.CodecIOException;
 import de.cubeisland.engine.reflect.exception.InvalidReflectedObjectException;
 
 import static de.cubeisland.engine.reflect.Reflector.LOGGER;
@@ -45,39 +49,244 @@ public abstract class ReflectedFile<C extends FileCodec<I, O>, I extends Closeab
 {
     private static final String[] EMPTY = new String[0];
 
+    /**
+     * Saves this reflected into given file
+     * <p>The file is not written if it already has the content to save or if the content could not be serialized
+     *
+     * @param target the file to save into
+     */
     public final void save(File target)
     {
         if (target == null)
         {
             throw new IllegalArgumentException("A reflected cannot be saved without a valid file!");
         }
-        O os = null;
+        this.onSave();
         try
         {
-            os = getCodec().newOutput(target);
-            this.save(os);
-            this.onSaved(target);
+            write(this, this.getCodec().convertReflected(this), target, false);
         }
         catch (IOException e)
         {
             throw new InvalidReflectedObjectException("File to save into cannot be accessed!", e);
         }
-        finally
+    }
+
+    /**
+     * Writes a MapNode converted from the reflected into given file unless the file already has that content
+     * <p>Nothing is written if the MapNode cannot be serialized and the reflected does not use the strict exception
+     * policy. Output of codecs that can only write files always goes into a temporary file first.
+     *
+     * @param reflected the reflected the MapNode got converted from
+     * @param node      the MapNode
+     * @param target    the file to write
+     * @param atomic    whether the content is synced into a temporary file that replaces the target
+     *
+     * @return true if the target has the content of the MapNode
+     */
+    @SuppressWarnings("unchecked")
+    static boolean write(ReflectedFile reflected, MapNode node, File target, boolean atomic) throws IOException
+    {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs())
         {
-            if (os != null)
+            throw new IOException("Could not create the directory " + dir);
+        }
+        FileCodec codec = (FileCodec)reflected.getCodec();
+        byte[] content;
+        try
+        {
+            content = codec.toBytes(node, reflected);
+        }
+        catch (ConversionException ex)
+        {
+            if (reflected.useStrictExceptionPolicy())
+            {
+                throw new CodecIOException("Could not save reflected", ex);
+            }
+            LOGGER.warning("Could not save reflected" + ex);
+            return false;
+        }
+        if (content == null)
+        {
+            File temp = File.createTempFile(target.getName() + ".", ".tmp", dir);
+            try
             {
+                Closeable output = (Closeable)codec.newOutput(temp);
+                boolean saved;
                 try
                 {
-                    os.close();
+                    saved = codec.saveNode(node, reflected, output);
+                }
+                finally
+                {
+                    output.close();
+                }
+                if (!saved)
+                {
+                    return false;
+                }
+                replace(temp, target);
+            }
+            finally
+            {
+                delete(temp);
+            }
+        }
+        else if (!hasContent(target, content))
+        {
+            File file = atomic ? File.createTempFile(target.getName() + ".", ".tmp", dir) : target;
+            try
+            {
+                FileOutputStream out = new FileOutputStream(file);
+                try
+                {
+                    out.write(content);
+                    if (atomic)
+                    {
+                        out.getFD().sync();
+                    }
+                }
+                finally
+                {
+                    out.close();
+                }
+                if (atomic)
+                {
+                    replace(file, target);
+                }
+            }
+            finally
+            {
+                if (atomic)
+                {
+                    delete(file);
+                }
+            }
+        }
+        reflected.getReflector().saved(reflected, target);
+        reflected.onSaved(target);
+        return true;
+    }
+
+    private static void replace(File temp, File target) throws IOException
+    {
+        // the rename replaces the target atomically on POSIX file systems but fails on others if the target exists
+        if (!temp.renameTo(target) && !(target.delete() && temp.renameTo(target)))
+        {
+            throw new IOException("Could not replace " + target);
+        }
+    }
+
+    private static void delete(File temp)
+    {
+        if (temp.exists())
+        {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Returns whether given file already has exactly the given content
+     * <p>Used to skip writing files that would not change
+     *
+     * @param file    the file
+     * @param content the content
+     *
+     * @return true if the file has the content
+     */
+    static boolean hasContent(File file, byte[] content) throws IOException
+    {
+        if (!file.isFile() || file.length() != content.length)
+        {
+            return false;
+        }
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            byte[] buffer = new byte[FileCodec.DEFAULT_BUFFER_SIZE];
+            int offset = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                if (offset + read > content.length)
+                {
+                    return false;
                 }
-                catch (IOException e)
+                for (int i = 0; i < read; i++)
                 {
-                    Reflector.LOGGER.log(WARNING, "Failed to close the output stream", e);
+                    if (buffer[i] != content[offset + i])
+                    {
+                        return false;
+                    }
                 }
+                offset += read;
             }
+            return offset == content.length;
+        }
+        finally
+        {
+            in.close();
         }
     }
 
+    /**
+     * Saves this reflected into its file in the background
+     *
+     * @return the Future completing when the file got written
+     *
+     * @see #saveAsync(File)
+     */
+    public final Future<File> saveAsync()
+    {
+        return this.saveAsync(this.getFile());
+    }
+
+    /**
+     * Saves this reflected into given file in the background
+     * <p>The fields are converted on the calling thread so later changes are not written.
+     * Saves of the same file shortly after each other are written once with the latest state.
+     * The file is replaced only after the new content was written completely.
+     *
+     * @param target the file to save into
+     *
+     * @return the Future completing when the file got written
+     */
+    public final Future<File> saveAsync(File target)
+    {
+        if (target == null)
+        {
+            throw new IllegalArgumentException("A reflected cannot be saved without a valid file!");
+        }
+        this.onSave();
+        MapNode node = this.getCodec().convertReflected(this);
+        return this.getReflector().getSaveQueue().save(this, node, target);
+    }
+
+    /**
+     * Watches the file of this reflected and reloads it in the background when the file changes
+     * <p>The listener is only notified about the paths whose values actually changed.
+     * The fields are updated while holding the lock of this reflected.
+     * Saving this reflected does not cause a reload. A file failing to parse leaves the fields untouched.
+     *
+     * @param clazz    the class the listener expects, this reflected has to be an instance of it
+     * @param listener the listener to notify after a reload
+     *
+     * @see Reflector#setWatchInterval(long)
+     */
+    public final <T extends ReflectedFile> void watch(Class<T> clazz, ChangeListener<? super T> listener)
+    {
+        this.getReflector().getWatcher().watch(clazz, clazz.cast(this), listener);
+    }
+
+    /**
+     * Stops watching the file of this reflected
+     */
+    public final void unwatch()
+    {
+        this.getReflector().getWatcher().unwatch(this);
+    }
+
     /**
      * Saves this reflected using given OutputStream
      *
@@ -89,6 +298,13 @@ public abstract class ReflectedFile<C extends FileCodec<I, O>, I extends Closeab
         this.getCodec().saveReflected(this, os);
     }
 
+    /**
+     * Loads the reflected from given file
+     *
+     * @param source the file to load from
+     *
+     * @return true if the file existed and could be parsed
+     */
     public final boolean loadFrom(File source)
     {
         if (source == null)
@@ -97,33 +313,21 @@ public abstract class ReflectedFile<C extends FileCodec<I, O>, I extends Closeab
         }
         if (source.exists())
         {
-            I in = null;
+            this.onLoad();
+            boolean loaded;
             try
             {
-
-                in = getCodec().newInput(source);
-                this.loadFrom(in);
+                loaded = getCodec().loadReflected(this, source);
             }
             catch (IOException e)
             {
                 throw new IllegalArgumentException("File to load from cannot be accessed!", e);
             }
-            finally
+            if (loaded)
             {
-                if (in != null)
-                {
-                    try
-                    {
-                        in.close();
-                    }
-                    catch (IOException e)
-                    {
-                        Reflector.LOGGER.log(WARNING, "Failed to close the input stream!", e);
-                    }
-                }
+                this.onLoaded(source);
             }
-            this.onLoaded(source);
-            return true;
+            return loaded;
         }
         LOGGER.log(Level.INFO, "Could not load reflected from file! Using default...");
         return false;
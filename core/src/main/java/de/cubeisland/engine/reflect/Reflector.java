@@ -22,8 +22,22 @@
  */
 package de.cubeisland.engine.reflect;
 
+import java.io.File;
+import java.io.FileFilter;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import de.cubeisland.engine.converter.ConverterManager;
@@ -32,11 +46,18 @@ import de.cubeisland.engine.reflect.exception.ReflectedInstantiationException;
 
 /**
  * This Class creates new Reflected Objects and provides them with a CodecManger containing the Converters
+ * <p>One Reflector can be shared by all threads of a process. Creating, loading and saving reflected is safe to do
+ * concurrently as long as a single reflected object is not modified by multiple threads at once.
  */
 public class Reflector
 {
     public static final Logger LOGGER = Logger.getLogger("ReflecT");
-    private CodecManager codecManager = new CodecManager(this);
+    private final CodecManager codecManager = new CodecManager(this);
+    private volatile SaveQueue saveQueue;
+    private volatile FileWatcher watcher;
+    private volatile ExecutorService executor;
+    private ExecutorService defaultExecutor;
+    private volatile int parallelism = Runtime.getRuntime().availableProcessors();
 
     /**
      * Loads the reflected from given source and optionally saves it afterwards
@@ -69,6 +90,21 @@ public class Reflector
         return load(clazz, source, true);
     }
 
+    /**
+     * Loads the reflected from given source into an AtomicReflected
+     * <p>Reloading the returned AtomicReflected replaces the reflected atomically
+     *
+     * @param clazz  the reflected class
+     * @param source the source to load from and save to
+     * @param save   whether to save the reflected or not
+     *
+     * @return the AtomicReflected holding the loaded reflected
+     */
+    public <T extends Reflected<?, S>, S> AtomicReflected<T> loadAtomic(Class<T> clazz, S source, boolean save)
+    {
+        return new AtomicReflected<T>(load(clazz, source, save));
+    }
+
     /**
      * Loads the reflected from given InputStream
      *
@@ -84,6 +120,221 @@ public class Reflector
         return reflected;
     }
 
+    /**
+     * Loads all files of given directory having the extension of the codec in parallel
+     * <p>The files are loaded in the order of their names
+     *
+     * @param clazz     the reflected class
+     * @param directory the directory
+     *
+     * @return the loaded reflected and the errors of the files that failed to load
+     *
+     * @see #loadAll(Class, Collection, boolean)
+     */
+    public <T extends ReflectedFile<?, ?, ?>> BulkResult<T> loadAll(Class<T> clazz, File directory)
+    {
+        final String extension = "." + create(clazz).getCodec().getExtension();
+        File[] files = directory.listFiles(new FileFilter()
+        {
+            public boolean accept(File file)
+            {
+                return file.isFile() && file.getName().endsWith(extension);
+            }
+        });
+        if (files == null)
+        {
+            throw new IllegalArgumentException(directory + " is not a directory!");
+        }
+        Arrays.sort(files);
+        return loadAll(clazz, Arrays.asList(files), true);
+    }
+
+    /**
+     * Loads the reflected from all given files in parallel and saves them afterwards
+     *
+     * @param clazz the reflected class
+     * @param files the files
+     *
+     * @return the loaded reflected and the errors of the files that failed to load
+     *
+     * @see #loadAll(Class, Collection, boolean)
+     */
+    public <T extends ReflectedFile<?, ?, ?>> BulkResult<T> loadAll(Class<T> clazz, Collection<File> files)
+    {
+        return loadAll(clazz, files, true);
+    }
+
+    /**
+     * Loads the reflected from all given files in parallel and optionally saves them afterwards
+     * <p>At most {@link #getParallelism()} files are processed at once.
+     * A file failing to load does not stop the others.
+     *
+     * @param clazz the reflected class
+     * @param files the files
+     * @param save  whether to save the reflected or not
+     *
+     * @return the loaded reflected in the order of the files and the errors of the files that failed to load
+     */
+    public <T extends ReflectedFile<?, ?, ?>> BulkResult<T> loadAll(final Class<T> clazz, Collection<File> files, final boolean save)
+    {
+        return this.runAll(new ArrayList<File>(files), new BulkTask<File, T>()
+        {
+            public T run(File file)
+            {
+                return load(clazz, file, save);
+            }
+
+            public File fileOf(File file)
+            {
+                return file;
+            }
+        });
+    }
+
+    /**
+     * Saves all given reflected into their files in parallel
+     * <p>At most {@link #getParallelism()} files are processed at once.
+     * A file failing to save does not stop the others.
+     *
+     * @param reflected the reflected to save
+     *
+     * @return the saved reflected in the given order and the errors of the files that failed to save
+     */
+    public <T extends ReflectedFile<?, ?, ?>> BulkResult<T> saveAll(Collection<T> reflected)
+    {
+        return this.runAll(new ArrayList<T>(reflected), new BulkTask<T, T>()
+        {
+            public T run(T reflected)
+            {
+                reflected.save();
+                return reflected;
+            }
+
+            public File fileOf(T reflected)
+            {
+                return reflected.getFile();
+            }
+        });
+    }
+
+    private <S, T extends ReflectedFile<?, ?, ?>> BulkResult<T> runAll(final List<S> sources, final BulkTask<S, T> task)
+    {
+        final List<T> results = new ArrayList<T>(Collections.<T>nCopies(sources.size(), null));
+        final List<RuntimeException> errors = new ArrayList<RuntimeException>(Collections.<RuntimeException>nCopies(sources.size(), null));
+        final AtomicInteger next = new AtomicInteger();
+        Callable<Void> worker = new Callable<Void>()
+        {
+            public Void call()
+            {
+                int index;
+                while ((index = next.getAndIncrement()) < sources.size())
+                {
+                    try
+                    {
+                        results.set(index, task.run(sources.get(index)));
+                    }
+                    catch (RuntimeException e)
+                    {
+                        errors.set(index, e);
+                    }
+                }
+                return null;
+            }
+        };
+        int workers = Math.min(this.parallelism, sources.size());
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+        ExecutorService executor = this.getExecutor();
+        for (int i = 0; i < workers; i++)
+        {
+            futures.add(executor.submit(worker));
+        }
+        for (Future<Void> future : futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the reflected", e);
+            }
+            catch (ExecutionException e)
+            {
+                throw new IllegalStateException("A worker failed unexpectedly", e.getCause());
+            }
+        }
+        List<File> files = new ArrayList<File>(sources.size());
+        for (S source : sources)
+        {
+            files.add(task.fileOf(source));
+        }
+        return new BulkResult<T>(files, results, errors);
+    }
+
+    private interface BulkTask<S, T>
+    {
+        T run(S source);
+
+        File fileOf(S source);
+    }
+
+    /**
+     * Sets the ExecutorService used to load and save many reflected at once
+     *
+     * @param executor the ExecutorService
+     */
+    public void setExecutor(ExecutorService executor)
+    {
+        this.executor = executor;
+    }
+
+    private ExecutorService getExecutor()
+    {
+        ExecutorService executor = this.executor;
+        if (executor != null)
+        {
+            return executor;
+        }
+        synchronized (this)
+        {
+            if (this.defaultExecutor == null)
+            {
+                this.defaultExecutor = Executors.newCachedThreadPool(new ThreadFactory()
+                {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread thread = new Thread(r, "ReflecT-Worker-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return this.defaultExecutor;
+        }
+    }
+
+    /**
+     * Sets the maximum amount of files loaded or saved at once by {@link #loadAll(Class, Collection)} and {@link #saveAll(Collection)}
+     *
+     * @param parallelism the maximum amount of files processed at once
+     */
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism <= 0)
+        {
+            throw new IllegalArgumentException("The parallelism has to be positive!");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
     /**
      * Creates an instance of given Reflected Class.
      * <p>The reflected has to have the default Constructor for this to work!
@@ -122,6 +373,128 @@ public class Reflector
         return this.codecManager;
     }
 
+    /**
+     * Returns the queue writing reflected saved asynchronously
+     *
+     * @return the SaveQueue
+     */
+    final SaveQueue getSaveQueue()
+    {
+        SaveQueue queue = this.saveQueue;
+        if (queue == null)
+        {
+            synchronized (this)
+            {
+                if (this.saveQueue == null)
+                {
+                    this.saveQueue = new SaveQueue();
+                }
+                queue = this.saveQueue;
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Returns the watcher reloading reflected when their file changes
+     *
+     * @return the FileWatcher
+     */
+    final FileWatcher getWatcher()
+    {
+        FileWatcher watcher = this.watcher;
+        if (watcher == null)
+        {
+            synchronized (this)
+            {
+                if (this.watcher == null)
+                {
+                    this.watcher = new FileWatcher(this);
+                }
+                watcher = this.watcher;
+            }
+        }
+        return watcher;
+    }
+
+    /**
+     * Records that the reflected saved into given file so a watcher does not reload it
+     *
+     * @param reflected the reflected
+     * @param file      the file it saved into
+     */
+    final void saved(ReflectedFile reflected, File file)
+    {
+        FileWatcher watcher = this.watcher;
+        if (watcher != null)
+        {
+            watcher.saved(reflected, file);
+        }
+    }
+
+    /**
+     * Sets the interval in which watched files are checked for changes
+     * <p>A change is applied once a file did not change for a whole interval
+     *
+     * @param millis the interval in milliseconds
+     *
+     * @see ReflectedFile#watch(Class, ChangeListener)
+     */
+    public void setWatchInterval(long millis)
+    {
+        this.getWatcher().setInterval(millis);
+    }
+
+    /**
+     * Sets the time to wait before an asynchronous save is written
+     * <p>Further saves of the same file within that time are written together
+     *
+     * @param millis the delay in milliseconds
+     */
+    public void setSaveDelay(long millis)
+    {
+        this.getSaveQueue().setDelay(millis);
+    }
+
+    /**
+     * Writes all pending asynchronous saves and stops the I/O and worker threads
+     * <p>Asynchronous saves and watching files cannot be used afterwards.
+     * An ExecutorService set with {@link #setExecutor(ExecutorService)} is not shut down.
+     */
+    public void shutdown()
+    {
+        ExecutorService executor;
+        synchronized (this)
+        {
+            executor = this.defaultExecutor;
+            this.defaultExecutor = null;
+        }
+        if (executor != null)
+        {
+            executor.shutdown();
+        }
+        SaveQueue queue = this.saveQueue;
+        if (queue != null)
+        {
+            queue.shutdown();
+        }
+        FileWatcher watcher = this.watcher;
+        if (watcher != null)
+        {
+            watcher.shutdown();
+        }
+    }
+
+    /**
+     * Sets the ClassLoader used to load classes by their name when loading reflected
+     *
+     * @param classLoader the ClassLoader
+     */
+    public void setClassLoader(ClassLoader classLoader)
+    {
+        this.getDefaultConverterManager().setClassLoader(classLoader);
+    }
+
     /**
      * Returns the default ConverterManager
      *
@@ -0,0 +1,278 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.cubeisland.engine.converter.node.MapNode;
+
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Writes {@link ReflectedFile} in the background
+ * <p>Saves of the same file within the delay are coalesced into one write of the latest state.
+ * Writes of the same file happen one after another while different files are written in parallel.
+ * Every write goes into a temporary file that gets synced and renamed to replace the target.
+ * Files that already have the content to write are not touched.
+ */
+final class SaveQueue
+{
+    static final long DEFAULT_DELAY = 50;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final ConcurrentMap<String, PendingSave> pending = new ConcurrentHashMap<String, PendingSave>();
+    private final ConcurrentMap<String, FileLock> locks = new ConcurrentHashMap<String, FileLock>();
+    private volatile long delay = DEFAULT_DELAY;
+
+    SaveQueue()
+    {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.executor = new ScheduledThreadPoolExecutor(threads, new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "ReflecT-IO-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // pending saves get written by shutdown() without waiting for their delay
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    void setDelay(long delay)
+    {
+        if (delay < 0)
+        {
+            throw new IllegalArgumentException("The delay cannot be negative!");
+        }
+        this.delay = delay;
+    }
+
+    /**
+     * Queues the node converted from the reflected to be written into the target
+     *
+     * @param reflected the reflected
+     * @param node      the node converted from the reflected
+     * @param target    the file to write into
+     *
+     * @return the Future completing when the file got written
+     *
+     * @throws RejectedExecutionException if the queue got shut down
+     */
+    Future<File> save(ReflectedFile reflected, MapNode node, File target)
+    {
+        String key = key(target);
+        while (true)
+        {
+            PendingSave save = this.pending.get(key);
+            if (save != null && save.replace(reflected, node))
+            {
+                return save.future;
+            }
+            PendingSave created = new PendingSave(key, target, reflected, node);
+            if (save == null ? this.pending.putIfAbsent(key, created) == null : this.pending.replace(key, save, created))
+            {
+                try
+                {
+                    this.executor.schedule(created.future, this.delay, TimeUnit.MILLISECONDS);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    this.pending.remove(key, created);
+                    throw e;
+                }
+                return created.future;
+            }
+        }
+    }
+
+    /**
+     * Writes all queued saves right away and stops the threads
+     */
+    void shutdown()
+    {
+        this.executor.shutdown();
+        for (PendingSave save : this.pending.values())
+        {
+            save.future.run();
+        }
+        try
+        {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the amount of files currently being written or waiting for a write of the same file
+     */
+    int getLockCount()
+    {
+        return this.locks.size();
+    }
+
+    /**
+     * Returns the lock of the file and registers the caller as its user
+     * <p>The lock is removed again when its last user released it
+     */
+    private FileLock acquire(String key)
+    {
+        while (true)
+        {
+            FileLock lock = this.locks.get(key);
+            if (lock == null)
+            {
+                lock = new FileLock();
+                FileLock previous = this.locks.putIfAbsent(key, lock);
+                if (previous != null)
+                {
+                    lock = previous;
+                }
+            }
+            synchronized (lock)
+            {
+                if (!lock.removed)
+                {
+                    lock.users++;
+                    return lock;
+                }
+            }
+        }
+    }
+
+    private void release(String key, FileLock lock)
+    {
+        synchronized (lock)
+        {
+            if (--lock.users == 0)
+            {
+                lock.removed = true;
+                this.locks.remove(key, lock);
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the file without accessing the file system
+     */
+    private static String key(File file)
+    {
+        return file.getAbsolutePath();
+    }
+
+    private final class PendingSave implements Callable<File>
+    {
+        private final String key;
+        private final File target;
+        private final FutureTask<File> future = new FutureTask<File>(this);
+        private ReflectedFile reflected;
+        private MapNode node;
+        private boolean started = false;
+
+        private PendingSave(String key, File target, ReflectedFile reflected, MapNode node)
+        {
+            this.key = key;
+            this.target = target;
+            this.reflected = reflected;
+            this.node = node;
+        }
+
+        /**
+         * Replaces the state to write if the write did not start yet
+         */
+        private synchronized boolean replace(ReflectedFile reflected, MapNode node)
+        {
+            if (this.started)
+            {
+                return false;
+            }
+            this.reflected = reflected;
+            this.node = node;
+            return true;
+        }
+
+        public File call() throws IOException
+        {
+            // the lock is held before the save counts as started, so a newer save
+            // of the same file is queued only after this one and gets written after it
+            FileLock lock = acquire(this.key);
+            try
+            {
+                synchronized (lock)
+                {
+                    ReflectedFile reflected;
+                    MapNode node;
+                    synchronized (this)
+                    {
+                        this.started = true;
+                        reflected = this.reflected;
+                        node = this.node;
+                    }
+                    pending.remove(this.key, this);
+                    ReflectedFile.write(reflected, node, this.target, true);
+                }
+            }
+            catch (IOException e)
+            {
+                Reflector.LOGGER.log(WARNING, "Could not save reflected into " + this.target, e);
+                throw e;
+            }
+            catch (RuntimeException e)
+            {
+                Reflector.LOGGER.log(WARNING, "Could not save reflected into " + this.target, e);
+                throw e;
+            }
+            finally
+            {
+                release(this.key, lock);
+            }
+            return this.target;
+        }
+    }
+
+    /**
+     * Serializes the writes of one file and counts the writes using it
+     */
+    private static final class FileLock
+    {
+        private int users = 0;
+        private boolean removed = false;
+    }
+}
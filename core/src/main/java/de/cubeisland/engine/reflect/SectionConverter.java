@@ -25,15 +25,17 @@ package de.cubeisland.engine.reflect;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import de.cubeisland.engine.converter.ConversionException;
 import de.cubeisland.engine.converter.ConverterManager;
+import de.cubeisland.engine.converter.ParallelConversion;
+import de.cubeisland.engine.converter.ParallelConversion.Task;
 import de.cubeisland.engine.converter.converter.ClassedConverter;
 import de.cubeisland.engine.converter.node.MapNode;
 import de.cubeisland.engine.converter.node.Node;
@@ -55,13 +57,14 @@ import static java.util.logging.Level.FINE;
  * A converter for Sections.
  * <p>
  * This converter will cache the Fields of Sections to speed up repeated saving and loading of the same section
+ * <p>The caches can be used from multiple threads at once
  */
 public class SectionConverter implements ClassedConverter<Section>
 {
     private static final String[] NO_COMMENT = new String[0];
-    private final Map<Field, Path> paths = new HashMap<Field, Path>();
-    private final Map<Class<? extends Section>, Field[]> cachedFields = new HashMap<Class<? extends Section>, Field[]>();
-    private final Map<Field, String[]> comments = new HashMap<Field, String[]>();
+    private final Map<Field, Path> paths = new ConcurrentHashMap<Field, Path>();
+    private final Map<Class<? extends Section>, Field[]> cachedFields = new ConcurrentHashMap<Class<? extends Section>, Field[]>();
+    private final Map<Field, String[]> comments = new ConcurrentHashMap<Field, String[]>();
 
     /**
      * Detects if given field needs to be serialized
@@ -84,7 +87,7 @@ public class SectionConverter implements ClassedConverter<Section>
      *
      * @return the ReflectedPath
      */
-    protected final Path getPathFor(Field field)
+    public final Path getPathFor(Field field)
     {
         Path path = this.paths.get(field);
         if (path == null)
@@ -113,15 +116,30 @@ public class SectionConverter implements ClassedConverter<Section>
         MapNode baseNode = MapNode.emptyMap();
         Class<? extends Section> sectionClass = section.getClass();
 
-        for (Field field : this.getReflectedFields(sectionClass))
+        final Field[] fields = this.getReflectedFields(sectionClass);
+        final Section finalSection = section;
+        final ReflectedConverterManager finalManager = rManager;
+        Object[] siblings = this.convertSiblings(fields, rManager, new SiblingTask()
         {
+            public Object convert(Field field) throws Exception
+            {
+                if (finalManager.getReflected().isInheritedField(field))
+                {
+                    return null;
+                }
+                return toNode(finalSection, finalManager, field);
+            }
+        });
+        for (int i = 0; i < fields.length; i++)
+        {
+            Field field = fields[i];
             if (rManager.getReflected().isInheritedField(field))
             {
                 continue; // do not save inherited field of child config
             }
             try
             {
-                Node newNode = toNode(section, rManager, field);
+                Node newNode = siblings[i] == null ? toNode(section, rManager, field) : (Node)unwrap(siblings[i]);
                 addComment(newNode, field);
 
                 Node prevNode = baseNode.get(getPathFor(field));
@@ -229,10 +247,30 @@ public class SectionConverter implements ClassedConverter<Section>
         ReflectedConverterManager rManager = (ReflectedConverterManager)manager;
 
         Section section = SectionFactory.newSectionInstance(clazz, null);
-        MapNode mapNode = (MapNode)aNode;
+        final MapNode mapNode = (MapNode)aNode;
 
-        for (Field field : this.getReflectedFields(clazz))
+        Field[] fields = this.getReflectedFields(clazz);
+        final ReflectedConverterManager finalManager = rManager;
+        Object[] siblings = new Object[fields.length];
+        // child reflected collect their inherited fields while loading so they are converted sequentially
+        if (!rManager.getReflected().isChild())
         {
+            siblings = this.convertSiblings(fields, rManager, new SiblingTask()
+            {
+                public Object convert(Field field) throws Exception
+                {
+                    Node fieldNode = mapNode.get(getPathFor(field));
+                    if (fieldNode == null || fieldNode instanceof NullNode)
+                    {
+                        return null;
+                    }
+                    return finalManager.convertFromNode(fieldNode, field.getGenericType());
+                }
+            });
+        }
+        for (int i = 0; i < fields.length; i++)
+        {
+            Field field = fields[i];
             try
             {
                 Path fieldPath = getPathFor(field);
@@ -249,7 +287,11 @@ public class SectionConverter implements ClassedConverter<Section>
                     rManager.getReflected().addInheritedField(field);
                 }
 
-                if (field.isAnnotationPresent(de.cubeisland.engine.reflect.annotations.Converter.class))
+                if (siblings[i] != null)
+                {
+                    value = unwrap(siblings[i]);
+                }
+                else if (field.isAnnotationPresent(de.cubeisland.engine.reflect.annotations.Converter.class))
                 {
                     value = rManager.getConverterByClass(field.getAnnotation(
                         de.cubeisland.engine.reflect.annotations.Converter.class).value()).fromNode(fieldNode, field.getType(), rManager);
@@ -268,6 +310,82 @@ public class SectionConverter implements ClassedConverter<Section>
         return section;
     }
 
+    /**
+     * Converts the sibling sections of a section in parallel if a {@link ParallelConversion} is set
+     * <p>Exceptions are returned in place of the converted value to be handled in order
+     *
+     * @param fields  the fields of the section
+     * @param manager the ConverterManager
+     * @param task    the task converting a single field
+     *
+     * @return the converted values by field index, null for fields to convert sequentially
+     */
+    private Object[] convertSiblings(final Field[] fields, ConverterManager manager, final SiblingTask task) throws ConversionException
+    {
+        Object[] results = new Object[fields.length];
+        ParallelConversion parallel = manager.getParallelConversion();
+        if (parallel == null || parallel.getParallelism() < 2)
+        {
+            return results;
+        }
+        final List<Integer> siblings = new ArrayList<Integer>();
+        for (int i = 0; i < fields.length; i++)
+        {
+            if (Section.class.isAssignableFrom(fields[i].getType())
+                && !fields[i].isAnnotationPresent(de.cubeisland.engine.reflect.annotations.Converter.class))
+            {
+                siblings.add(i);
+            }
+        }
+        if (siblings.size() < 2)
+        {
+            return results;
+        }
+        Object[] converted = parallel.convertAll(siblings.size(), new Task()
+        {
+            public Object convert(int index)
+            {
+                try
+                {
+                    return task.convert(fields[siblings.get(index)]);
+                }
+                catch (Exception e)
+                {
+                    return new Failure(e);
+                }
+            }
+        });
+        for (int i = 0; i < converted.length; i++)
+        {
+            results[siblings.get(i)] = converted[i];
+        }
+        return results;
+    }
+
+    private static Object unwrap(Object converted) throws Exception
+    {
+        if (converted instanceof Failure)
+        {
+            throw ((Failure)converted).exception;
+        }
+        return converted;
+    }
+
+    private interface SiblingTask
+    {
+        Object convert(Field field) throws Exception;
+    }
+
+    private static final class Failure
+    {
+        private final Exception exception;
+
+        private Failure(Exception exception)
+        {
+            this.exception = exception;
+        }
+    }
+
     /**
      * Returns the fields to Reflect for given section
      *
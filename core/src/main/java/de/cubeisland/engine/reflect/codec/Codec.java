@@ -26,6 +26,7 @@ import de.cubeisland.engine.converter.ConversionException;
 import de.cubeisland.engine.converter.ConverterManager;
 import de.cubeisland.engine.converter.node.MapNode;
 import de.cubeisland.engine.reflect.Reflected;
+import de.cubeisland.engine.reflect.ReflectedConverterManager;
 import de.cubeisland.engine.reflect.Reflector;
 
 /**
@@ -33,8 +34,8 @@ import de.cubeisland.engine.reflect.Reflector;
  */
 public abstract class Codec<InputT, OutputT>
 {
-    private ConverterManager converterManager;
-    private Reflector reflector;
+    private volatile ConverterManager converterManager;
+    private volatile Reflector reflector;
 
     /**
      * Called via registering with the CodecManager
@@ -115,8 +116,7 @@ public abstract class Codec<InputT, OutputT>
     {
         try
         {
-            reflected.getConverterManager().withFallback(converterManager);
-            return (MapNode)reflected.getConverterManager().convertReflected(reflected);
+            return (MapNode)this.getManager(reflected).convertReflected(reflected);
         }
         catch (ConversionException e)
         {
@@ -134,8 +134,7 @@ public abstract class Codec<InputT, OutputT>
     {
         try
         {
-            reflected.getConverterManager().withFallback(this.converterManager);
-            reflected.getConverterManager().fillReflected(node, reflected);
+            this.getManager(reflected).fillReflected(node, reflected);
         }
         catch (ConversionException e)
         {
@@ -143,6 +142,20 @@ public abstract class Codec<InputT, OutputT>
         }
     }
 
+    /**
+     * Returns the ConverterManager of the reflected falling back to the ConverterManager of this Codec
+     * <p>The fallback is only set when the reflected is used with this Codec for the first time
+     */
+    private ReflectedConverterManager getManager(Reflected reflected)
+    {
+        ReflectedConverterManager manager = reflected.getConverterManager();
+        if (manager.getFallback() != this.converterManager)
+        {
+            manager.withFallback(this.converterManager);
+        }
+        return manager;
+    }
+
     /**
      * Returns the Reflector this Codec was initialized with
      *
@@ -22,8 +22,8 @@
  */
 package de.cubeisland.engine.reflect.codec;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import de.cubeisland.engine.converter.ConverterManager;
 import de.cubeisland.engine.reflect.Reflector;
@@ -33,11 +33,13 @@ import de.cubeisland.engine.reflect.exception.ReflectedInstantiationException;
 
 /**
  * This Class manages Codec for a Reflector
+ * <p>It is safe to use from multiple threads. Looking up a registered Codec does not lock and a Codec is
+ * auto-registered exactly once; a Codec is initialized before other threads can see it.
  */
 public class CodecManager
 {
     private final ConverterManager defaultManager = ConverterManager.defaultManager();
-    private final Map<Class<? extends Codec>, Codec> codecs = new HashMap<Class<? extends Codec>, Codec>();
+    private final ConcurrentMap<Class<? extends Codec>, Codec> codecs = new ConcurrentHashMap<Class<? extends Codec>, Codec>();
     private final Reflector reflector;
 
     public CodecManager(Reflector reflector)
@@ -58,8 +60,17 @@ public class CodecManager
     public <C extends Codec> C getCodec(Class<C> clazz)
     {
         C codec = (C)this.codecs.get(clazz);
-        if (codec == null)
+        if (codec != null)
         {
+            return codec;
+        }
+        synchronized (this.codecs)
+        {
+            codec = (C)this.codecs.get(clazz);
+            if (codec != null)
+            {
+                return codec; // another thread registered it first
+            }
             // Codec not registered yet! Try to auto-register...
             try
             {
@@ -85,8 +96,11 @@ public class CodecManager
      */
     public <C extends Codec> void registerCodec(C codec)
     {
-        this.codecs.put(codec.getClass(), codec);
-        codec.init(this.defaultManager.subManager(), this.reflector);
+        synchronized (this.codecs)
+        {
+            codec.init(this.defaultManager.subManager(), this.reflector);
+            this.codecs.put(codec.getClass(), codec);
+        }
     }
 
     /**
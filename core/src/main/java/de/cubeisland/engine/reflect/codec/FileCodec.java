@@ -22,22 +22,125 @@
  */
 package de.cubeisland.engine.reflect.codec;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
 
 import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.node.MapNode;
 import de.cubeisland.engine.reflect.Reflected;
 import de.cubeisland.engine.reflect.exception.CodecIOException;
 
 import static de.cubeisland.engine.reflect.Reflector.LOGGER;
+import static java.util.logging.Level.WARNING;
 
 /**
  * A Codec using {@link InputStream} and {@link OutputStream} to save/load into/from a File
  */
 public abstract class FileCodec<I, O> extends Codec<I, O>
 {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<Boolean> UNCACHEABLE = new ThreadLocal<Boolean>();
+
+    private volatile int bufferSize = DEFAULT_BUFFER_SIZE;
+    private volatile NodeCache nodeCache;
+
+    /**
+     * Sets the size of the buffers used to read and write files
+     *
+     * @param bufferSize the buffer size in bytes
+     *
+     * @return fluent interface
+     */
+    public final FileCodec<I, O> setBufferSize(int bufferSize)
+    {
+        if (bufferSize <= 0)
+        {
+            throw new IllegalArgumentException("The buffer size has to be positive!");
+        }
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Returns the size of the buffers used to read and write files
+     *
+     * @return the buffer size in bytes
+     */
+    public final int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the cache of loaded nodes to skip parsing unchanged files
+     *
+     * @param nodeCache the NodeCache or null to disable caching
+     *
+     * @return fluent interface
+     */
+    public final FileCodec<I, O> setNodeCache(NodeCache nodeCache)
+    {
+        this.nodeCache = nodeCache;
+        return this;
+    }
+
+    /**
+     * Returns the cache of loaded nodes
+     *
+     * @return the NodeCache or null if disabled
+     */
+    public final NodeCache getNodeCache()
+    {
+        return nodeCache;
+    }
+
+    /**
+     * Returns whether the node loaded from a file only depends on the content of that file
+     * <p>Override to disable the {@link NodeCache} when loading can depend on other files
+     *
+     * @return true if the loaded nodes can be cached
+     */
+    protected boolean isCacheable()
+    {
+        return true;
+    }
+
+    /**
+     * Opens a buffered InputStream reading given file through a FileChannel
+     *
+     * @param f the file
+     *
+     * @return the InputStream
+     */
+    protected final InputStream openInputStream(File f) throws IOException
+    {
+        return new BufferedInputStream(Channels.newInputStream(new FileInputStream(f).getChannel()), this.bufferSize);
+    }
+
+    /**
+     * Opens an OutputStream writing into given file through a FileChannel
+     * <p>The returned stream is not buffered
+     *
+     * @param f the file
+     *
+     * @return the OutputStream
+     */
+    protected final OutputStream openOutputStream(File f) throws IOException
+    {
+        return Channels.newOutputStream(new FileOutputStream(f).getChannel());
+    }
+
     public final void loadReflected(Reflected reflected, I input)
     {
         try
@@ -46,19 +149,143 @@ public abstract class FileCodec<I, O> extends Codec<I, O>
         }
         catch (ConversionException ex)
         {
-            if (reflected.useStrictExceptionPolicy())
+            this.onLoadFailed(reflected, ex);
+        }
+    }
+
+    /**
+     * Loads the reflected from given file
+     * <p>If a {@link NodeCache} is set an up to date snapshot is used instead of parsing the file
+     *
+     * @param reflected the reflected to load
+     * @param file      the file to load from
+     *
+     * @return false if the file could not be parsed and the reflected does not use the strict exception policy
+     */
+    public final boolean loadReflected(Reflected reflected, File file) throws IOException
+    {
+        MapNode node;
+        try
+        {
+            node = this.loadNode(reflected, file);
+        }
+        catch (ConversionException ex)
+        {
+            this.onLoadFailed(reflected, ex);
+            return false;
+        }
+        this.fillReflected(reflected, node);
+        return true;
+    }
+
+    /**
+     * Loads the MapNode of given file without filling a reflected
+     * <p>If a {@link NodeCache} is set an up to date snapshot is used instead of parsing the file
+     *
+     * @param reflected the reflected the file belongs to
+     * @param file      the file to load from
+     *
+     * @return the loaded MapNode
+     *
+     * @throws ConversionException if the file could not be parsed, regardless of the exception policy
+     */
+    public final MapNode loadNode(Reflected reflected, File file) throws IOException, ConversionException
+    {
+        NodeCache cache = this.nodeCache;
+        if (cache == null || !this.isCacheable())
+        {
+            I input = this.newInput(file);
+            try
+            {
+                return this.load(input, reflected);
+            }
+            finally
             {
-                throw new CodecIOException("Could not load reflected", ex);
+                close(input);
+            }
+        }
+        NodeCache.Stamp stamp = cache.stamp(file);
+        MapNode node = cache.get(file, reflected.getClass(), stamp);
+        if (node == null)
+        {
+            // parse the content the stamp got taken of instead of reading the file again
+            I input = this.newInput(new ByteArrayInputStream(stamp.getContent()));
+            if (input == null)
+            {
+                input = this.newInput(file);
+            }
+            UNCACHEABLE.remove();
+            try
+            {
+                node = this.load(input, reflected);
+            }
+            finally
+            {
+                close(input);
+            }
+            if (UNCACHEABLE.get() == null)
+            {
+                cache.put(file, reflected.getClass(), stamp, node);
+            }
+            UNCACHEABLE.remove();
+        }
+        return node;
+    }
+
+    /**
+     * Marks the node currently loaded on this thread as depending on other files
+     * <p>Call this from {@link #load(Object, Reflected)} e.g. when the document included other files.
+     * The node is then not written into the {@link NodeCache}.
+     */
+    protected final void markUncacheable()
+    {
+        UNCACHEABLE.set(Boolean.TRUE);
+    }
+
+    private void onLoadFailed(Reflected reflected, ConversionException ex)
+    {
+        if (reflected.useStrictExceptionPolicy())
+        {
+            throw new CodecIOException("Could not load reflected", ex);
+        }
+        LOGGER.warning("Could not load reflected" + ex);
+    }
+
+    private static void close(Object input)
+    {
+        if (input instanceof Closeable)
+        {
+            try
+            {
+                ((Closeable)input).close();
+            }
+            catch (IOException e)
+            {
+                LOGGER.log(WARNING, "Failed to close the input stream!", e);
             }
-            LOGGER.warning("Could not load reflected" + ex);
         }
     }
 
     public final void saveReflected(Reflected reflected, O output)
+    {
+        this.saveNode(convertReflected(reflected), reflected, output);
+    }
+
+    /**
+     * Saves a MapNode converted from the reflected before
+     *
+     * @param node      the MapNode
+     * @param reflected the reflected the MapNode got converted from
+     * @param output    the Output to write into
+     *
+     * @return false if the node could not be serialized and the reflected does not use the strict exception policy
+     */
+    public final boolean saveNode(MapNode node, Reflected reflected, O output)
     {
         try
         {
-            this.save(convertReflected(reflected), output, reflected);
+            this.save(node, output, reflected);
+            return true;
         }
         catch (ConversionException ex)
         {
@@ -67,12 +294,87 @@ public abstract class FileCodec<I, O> extends Codec<I, O>
                 throw new CodecIOException("Could not save reflected", ex);
             }
             LOGGER.warning("Could not save reflected" + ex);
+            return false;
+        }
+    }
+
+    /**
+     * Serializes a MapNode converted from the reflected before into memory
+     *
+     * @param node      the MapNode
+     * @param reflected the reflected the MapNode got converted from
+     *
+     * @return the content a file saving the reflected would have or null if the codec can only write files
+     *
+     * @throws ConversionException if the node could not be serialized regardless of the exception policy
+     */
+    public final byte[] toBytes(MapNode node, Reflected reflected) throws IOException, ConversionException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(this.bufferSize);
+        O output = this.newOutput(bytes);
+        if (output == null)
+        {
+            return null;
+        }
+        try
+        {
+            this.save(node, output, reflected);
+        }
+        finally
+        {
+            closeOutput(output);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Closes the Output or flushes it if it cannot be closed
+     *
+     * @param output the Output
+     */
+    protected static void closeOutput(Object output) throws IOException
+    {
+        if (output instanceof Closeable)
+        {
+            ((Closeable)output).close();
+        }
+        else if (output instanceof Flushable)
+        {
+            ((Flushable)output).flush();
         }
     }
 
     public abstract I newInput(File f) throws IOException;
+
+    /**
+     * Creates an Input reading from given InputStream
+     * <p>Codecs overriding {@link #newInput(File)} should override this too. Without it files are always read
+     * through {@link #newInput(File)}.
+     *
+     * @param is the InputStream
+     *
+     * @return the Input or null if the codec can only read files
+     */
+    public I newInput(InputStream is) throws IOException
+    {
+        return null;
+    }
+
     public abstract O newOutput(File f) throws IOException;
 
+    /**
+     * Creates an Output writing into given OutputStream
+     * <p>Codecs that can only write files do not need to override this
+     *
+     * @param os the OutputStream
+     *
+     * @return the Output or null if the codec can only write files
+     */
+    public O newOutput(OutputStream os) throws IOException
+    {
+        return null;
+    }
+
     /**
      * Returns the FileExtension as String
      *
@@ -0,0 +1,524 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import de.cubeisland.engine.converter.node.BooleanNode;
+import de.cubeisland.engine.converter.node.ByteNode;
+import de.cubeisland.engine.converter.node.CharNode;
+import de.cubeisland.engine.converter.node.DoubleNode;
+import de.cubeisland.engine.converter.node.FloatNode;
+import de.cubeisland.engine.converter.node.IntNode;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.LongNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.NullNode;
+import de.cubeisland.engine.converter.node.ShortNode;
+import de.cubeisland.engine.converter.node.StringNode;
+import de.cubeisland.engine.reflect.Reflected;
+import de.cubeisland.engine.reflect.Section;
+
+import static de.cubeisland.engine.reflect.Reflector.LOGGER;
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Caches the MapNodes loaded from files in a compact binary format
+ * <p>A snapshot is only used while the path, modification time, size and content hash of the file and the fields of
+ * the reflected class are unchanged. The files stay the source of truth, snapshots can be deleted at any time.
+ * <p>Snapshots are written next to the file as hidden sidecar files or into a cache directory.
+ *
+ * @see FileCodec#setNodeCache(NodeCache)
+ */
+public final class NodeCache
+{
+    private static final int MAGIC = 0x52664e43; // RfNC
+    private static final int FORMAT = 1;
+    private static final String EXTENSION = ".node";
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte MAP = 1;
+    private static final byte LIST = 2;
+    private static final byte STRING = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte BYTE = 5;
+    private static final byte SHORT = 6;
+    private static final byte INT = 7;
+    private static final byte LONG = 8;
+    private static final byte FLOAT = 9;
+    private static final byte DOUBLE = 10;
+    private static final byte CHAR = 11;
+
+    private final File directory;
+    private final ConcurrentMap<Class, Long> modelVersions = new ConcurrentHashMap<Class, Long>();
+
+    /**
+     * Creates a NodeCache writing sidecar files next to the loaded files
+     */
+    public NodeCache()
+    {
+        this(null);
+    }
+
+    /**
+     * Creates a NodeCache writing its snapshots into given directory
+     *
+     * @param directory the cache directory or null for sidecar files
+     */
+    public NodeCache(File directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the cache directory
+     *
+     * @return the directory or null if sidecar files are used
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Deletes the snapshot of given file
+     *
+     * @param file the file
+     */
+    public void invalidate(File file)
+    {
+        File snapshot = this.getSnapshotFile(file);
+        if (snapshot.exists() && !snapshot.delete())
+        {
+            LOGGER.log(WARNING, "Failed to delete the node snapshot " + snapshot);
+        }
+    }
+
+    /**
+     * Returns the cached node of given file or null if there is no up to date snapshot
+     *
+     * @param file  the file
+     * @param clazz the reflected class
+     * @param stamp the current stamp of the file
+     *
+     * @return the MapNode or null
+     */
+    MapNode get(File file, Class<? extends Reflected> clazz, Stamp stamp)
+    {
+        File snapshot = this.getSnapshotFile(file);
+        if (!snapshot.exists())
+        {
+            return null;
+        }
+        // no length or size in a valid snapshot can exceed the size of the snapshot
+        long max = snapshot.length();
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT
+                || !readString(in, max).equals(stamp.path)
+                || in.readLong() != stamp.modified || in.readLong() != stamp.length || in.readLong() != stamp.hash
+                || in.readLong() != this.getModelVersion(clazz))
+            {
+                return null;
+            }
+            Node node = readNode(in, max);
+            return node instanceof MapNode ? (MapNode)node : null;
+        }
+        catch (IOException e)
+        {
+            LOGGER.log(FINE, "Deleting unreadable node snapshot " + snapshot, e);
+        }
+        catch (RuntimeException e)
+        {
+            LOGGER.log(FINE, "Deleting unreadable node snapshot " + snapshot, e);
+        }
+        finally
+        {
+            close(in);
+        }
+        this.invalidate(file);
+        return null;
+    }
+
+    /**
+     * Writes a snapshot of the node loaded from given file
+     * <p>Failures are logged and otherwise ignored
+     *
+     * @param file  the file
+     * @param clazz the reflected class
+     * @param stamp the stamp of the file taken before loading it
+     * @param node  the loaded MapNode
+     */
+    void put(File file, Class<? extends Reflected> clazz, Stamp stamp, MapNode node)
+    {
+        File snapshot = this.getSnapshotFile(file);
+        File temp = null;
+        DataOutputStream out = null;
+        try
+        {
+            File dir = snapshot.getAbsoluteFile().getParentFile();
+            if (!dir.exists() && !dir.mkdirs())
+            {
+                throw new IOException("Could not create the directory " + dir);
+            }
+            temp = File.createTempFile(snapshot.getName(), ".tmp", dir);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            writeString(out, stamp.path);
+            out.writeLong(stamp.modified);
+            out.writeLong(stamp.length);
+            out.writeLong(stamp.hash);
+            out.writeLong(this.getModelVersion(clazz));
+            writeNode(out, node);
+            out.close();
+            out = null;
+            if (!temp.renameTo(snapshot) && !(snapshot.delete() && temp.renameTo(snapshot)))
+            {
+                throw new IOException("Could not replace " + snapshot);
+            }
+            temp = null;
+        }
+        catch (IOException e)
+        {
+            LOGGER.log(WARNING, "Failed to write the node snapshot " + snapshot, e);
+        }
+        finally
+        {
+            close(out);
+            if (temp != null)
+            {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Takes the stamp of given file identifying its current content
+     * <p>The stamp keeps the content it got read, so a miss does not need to read the file again
+     *
+     * @param file the file
+     *
+     * @return the Stamp
+     */
+    Stamp stamp(File file) throws IOException
+    {
+        long modified = file.lastModified();
+        long length = file.length();
+        ByteArrayOutputStream content = new ByteArrayOutputStream((int)Math.min(length, Integer.MAX_VALUE - 8));
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            byte[] buffer = new byte[FileCodec.DEFAULT_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                content.write(buffer, 0, read);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        byte[] bytes = content.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return new Stamp(file.getCanonicalPath(), modified, length, crc.getValue(), bytes);
+    }
+
+    private File getSnapshotFile(File file)
+    {
+        if (this.directory == null)
+        {
+            return new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + EXTENSION);
+        }
+        String path;
+        try
+        {
+            path = file.getCanonicalPath();
+        }
+        catch (IOException e)
+        {
+            path = file.getAbsolutePath();
+        }
+        return new File(this.directory, Integer.toHexString(path.hashCode()) + "-" + file.getName() + EXTENSION);
+    }
+
+    /**
+     * Returns a hash of the fields of given class and its sections
+     */
+    private long getModelVersion(Class clazz)
+    {
+        Long version = this.modelVersions.get(clazz);
+        if (version == null)
+        {
+            StringBuilder sb = new StringBuilder();
+            describe(clazz, sb, 0);
+            CRC32 crc = new CRC32();
+            crc.update(sb.toString().getBytes(CHARSET));
+            version = crc.getValue();
+            this.modelVersions.put(clazz, version);
+        }
+        return version;
+    }
+
+    private static void describe(Class clazz, StringBuilder sb, int depth)
+    {
+        sb.append(clazz.getName()).append('{');
+        for (Class current = clazz; current != null && current != Object.class; current = current.getSuperclass())
+        {
+            for (Field field : current.getDeclaredFields())
+            {
+                int mod = field.getModifiers();
+                if (Modifier.isStatic(mod) || Modifier.isTransient(mod))
+                {
+                    continue;
+                }
+                sb.append(field.getName()).append(':').append(field.getGenericType()).append(';');
+                if (depth < 8 && Section.class.isAssignableFrom(field.getType()))
+                {
+                    describe(field.getType(), sb, depth + 1);
+                }
+            }
+        }
+        sb.append('}');
+    }
+
+    private static void writeNode(DataOutputStream out, Node node) throws IOException
+    {
+        if (node instanceof MapNode)
+        {
+            MapNode map = (MapNode)node;
+            out.writeByte(MAP);
+            out.writeInt(map.getMappedNodes().size());
+            for (Entry<String, Node> entry : map.getMappedNodes().entrySet())
+            {
+                String key = map.getOriginalKey(entry.getKey());
+                writeString(out, key == null ? entry.getKey() : key);
+                writeNode(out, entry.getValue());
+            }
+        }
+        else if (node instanceof ListNode)
+        {
+            List<Node> list = ((ListNode)node).getValue();
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Node element : list)
+            {
+                writeNode(out, element);
+            }
+        }
+        else if (node instanceof StringNode)
+        {
+            out.writeByte(STRING);
+            writeString(out, ((StringNode)node).getValue());
+        }
+        else if (node instanceof BooleanNode)
+        {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(((BooleanNode)node).getValue());
+        }
+        else if (node instanceof ByteNode)
+        {
+            out.writeByte(BYTE);
+            out.writeByte(((ByteNode)node).getValue());
+        }
+        else if (node instanceof ShortNode)
+        {
+            out.writeByte(SHORT);
+            out.writeShort(((ShortNode)node).getValue());
+        }
+        else if (node instanceof IntNode)
+        {
+            out.writeByte(INT);
+            out.writeInt(((IntNode)node).getValue());
+        }
+        else if (node instanceof LongNode)
+        {
+            out.writeByte(LONG);
+            out.writeLong(((LongNode)node).getValue());
+        }
+        else if (node instanceof FloatNode)
+        {
+            out.writeByte(FLOAT);
+            out.writeFloat(((FloatNode)node).getValue());
+        }
+        else if (node instanceof DoubleNode)
+        {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((DoubleNode)node).getValue());
+        }
+        else if (node instanceof CharNode)
+        {
+            out.writeByte(CHAR);
+            out.writeChar(((CharNode)node).getValue());
+        }
+        else if (node == null || node instanceof NullNode)
+        {
+            out.writeByte(NULL);
+        }
+        else
+        {
+            throw new IOException("Cannot write " + node.getClass().getName() + " into a node snapshot");
+        }
+    }
+
+    private static Node readNode(DataInputStream in, long max) throws IOException
+    {
+        byte type = in.readByte();
+        switch (type)
+        {
+            case NULL:
+                return NullNode.emptyNode();
+            case MAP:
+                MapNode map = MapNode.emptyMap();
+                for (int size = readSize(in, max); size > 0; size--)
+                {
+                    String key = readString(in, max);
+                    map.set(key, readNode(in, max));
+                }
+                return map;
+            case LIST:
+                ListNode list = ListNode.emptyList();
+                for (int size = readSize(in, max); size > 0; size--)
+                {
+                    list.addNode(readNode(in, max));
+                }
+                return list;
+            case STRING:
+                return new StringNode(readString(in, max));
+            case BOOLEAN:
+                return BooleanNode.of(in.readBoolean());
+            case BYTE:
+                return new ByteNode(in.readByte());
+            case SHORT:
+                return new ShortNode(in.readShort());
+            case INT:
+                return new IntNode(in.readInt());
+            case LONG:
+                return new LongNode(in.readLong());
+            case FLOAT:
+                return new FloatNode(in.readFloat());
+            case DOUBLE:
+                return new DoubleNode(in.readDouble());
+            case CHAR:
+                return new CharNode(in.readChar());
+            default:
+                throw new IOException("Unknown node type " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException
+    {
+        byte[] bytes = string.getBytes(CHARSET);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, long max) throws IOException
+    {
+        byte[] bytes = new byte[readSize(in, max)];
+        in.readFully(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    /**
+     * Reads a length or size that cannot be negative or larger than the snapshot
+     */
+    private static int readSize(DataInputStream in, long max) throws IOException
+    {
+        int size = in.readInt();
+        if (size < 0 || size > max)
+        {
+            throw new IOException("Corrupt node snapshot: invalid size " + size);
+        }
+        return size;
+    }
+
+    private static void close(Closeable closeable)
+    {
+        if (closeable != null)
+        {
+            try
+            {
+                closeable.close();
+            }
+            catch (IOException ignored)
+            {
+                // nothing to do
+            }
+        }
+    }
+
+    /**
+     * Identifies the content of a file
+     */
+    static final class Stamp
+    {
+        private final String path;
+        private final long modified;
+        private final long length;
+        private final long hash;
+        private final byte[] content;
+
+        private Stamp(String path, long modified, long length, long hash, byte[] content)
+        {
+            this.path = path;
+            this.modified = modified;
+            this.length = length;
+            this.hash = hash;
+            this.content = content;
+        }
+
+        /**
+         * Returns the content of the file the stamp got taken of
+         */
+        byte[] getContent()
+        {
+            return content;
+        }
+    }
+}
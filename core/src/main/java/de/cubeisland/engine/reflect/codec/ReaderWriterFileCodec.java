@@ -22,24 +22,46 @@
  */
 package de.cubeisland.engine.reflect.codec;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.Charset;
 
+/**
+ * A Codec reading and writing UTF-8 text files
+ */
 public abstract class ReaderWriterFileCodec extends FileCodec<Reader, Writer>
 {
+    public static final Charset CHARSET = Charset.forName("UTF-8");
+
     @Override
     public Reader newInput(File f) throws IOException
     {
-        return new FileReader(f);
+        return this.newInput(this.openInputStream(f));
+    }
+
+    @Override
+    public Reader newInput(InputStream is) throws IOException
+    {
+        return new BufferedReader(new InputStreamReader(is, CHARSET), this.getBufferSize());
     }
 
     @Override
     public Writer newOutput(File f) throws IOException
     {
-        return new FileWriter(f);
+        return this.newOutput(this.openOutputStream(f));
+    }
+
+    @Override
+    public Writer newOutput(OutputStream os) throws IOException
+    {
+        return new BufferedWriter(new OutputStreamWriter(os, CHARSET), this.getBufferSize());
     }
 }
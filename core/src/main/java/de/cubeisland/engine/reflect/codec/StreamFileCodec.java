@@ -22,9 +22,8 @@
  */
 package de.cubeisland.engine.reflect.codec;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -34,12 +33,24 @@ public abstract class StreamFileCodec extends FileCodec<InputStream, OutputStrea
     @Override
     public InputStream newInput(File f) throws IOException
     {
-        return new FileInputStream(f);
+        return this.openInputStream(f);
+    }
+
+    @Override
+    public InputStream newInput(InputStream is) throws IOException
+    {
+        return is;
     }
 
     @Override
     public OutputStream newOutput(File f) throws IOException
     {
-        return new FileOutputStream(f);
+        return this.newOutput(this.openOutputStream(f));
+    }
+
+    @Override
+    public OutputStream newOutput(OutputStream os) throws IOException
+    {
+        return new BufferedOutputStream(os, this.getBufferSize());
     }
 }
@@ -22,36 +22,120 @@
  */
 package de.cubeisland.engine.reflect.codec.hocon;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigList;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigParseOptions;
+import com.typesafe.config.ConfigValue;
 import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.node.BooleanNode;
+import de.cubeisland.engine.converter.node.ByteNode;
+import de.cubeisland.engine.converter.node.DoubleNode;
+import de.cubeisland.engine.converter.node.FloatNode;
+import de.cubeisland.engine.converter.node.IntNode;
 import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.LongNode;
 import de.cubeisland.engine.converter.node.MapNode;
 import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.NullNode;
+import de.cubeisland.engine.converter.node.ShortNode;
+import de.cubeisland.engine.converter.node.StringNode;
 import de.cubeisland.engine.reflect.Reflected;
+import de.cubeisland.engine.reflect.ReflectedFile;
 import de.cubeisland.engine.reflect.codec.ReaderWriterFileCodec;
 
 /**
  * A Codec using the HOCON format
+ * <p>By default the output is formatted and contains the comments of the reflected object.
+ * In concise mode a compact JSON document without comments is written instead.
  */
 public class HoconCodec extends ReaderWriterFileCodec
 {
+    private static final String COMMENT_PREFIX = "# ";
+    private static final String INDENT = "    ";
+    private static final String LINE_BREAK = "\n";
+    private static final Pattern UNQUOTED_KEY = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_-]*");
+
+    private final HoconParseCache parseCache = new HoconParseCache();
+    private final List<File> fallbacks = new CopyOnWriteArrayList<File>();
+    private volatile boolean concise = false;
+
     @Override
     public String getExtension()
     {
         return "conf";
     }
 
+    /**
+     * Enables or disables the concise output
+     * <p>Concise output is JSON without any comments or whitespace
+     *
+     * @param concise true to enable the concise output
+     *
+     * @return fluent interface
+     */
+    public final HoconCodec setConcise(boolean concise)
+    {
+        this.concise = concise;
+        return this;
+    }
+
+    /**
+     * Returns whether the concise output is used
+     *
+     * @return true if concise
+     */
+    public final boolean isConcise()
+    {
+        return concise;
+    }
+
+    /**
+     * Returns the cache of parsed includes and fallback documents
+     *
+     * @return the HoconParseCache
+     */
+    public final HoconParseCache getParseCache()
+    {
+        return parseCache;
+    }
+
+    /**
+     * Adds a document every loaded reflected falls back to for missing values
+     * <p>The document is parsed once and parsed again only when the file changes
+     *
+     * @param file the fallback document
+     *
+     * @return fluent interface
+     */
+    public final HoconCodec addFallback(File file)
+    {
+        this.fallbacks.add(file);
+        return this;
+    }
+
+    /**
+     * Documents with fallbacks depend on other files and are never taken from the NodeCache
+     * <p>Documents including other files are not written into the NodeCache either
+     */
+    @Override
+    protected boolean isCacheable()
+    {
+        return this.fallbacks.isEmpty();
+    }
+
     // Reflected loading Method
     @Override
-    @SuppressWarnings("unchecked")
     protected MapNode load(Reader in, Reflected reflected) throws ConversionException
     {
         if (in == null)
@@ -59,23 +143,108 @@ public class HoconCodec extends ReaderWriterFileCodec
             // InputStream null -> reflected was not existent
             return MapNode.emptyMap();
         }
-        Config config = ConfigFactory.parseReader(in);
+        File baseDir = null;
+        if (reflected instanceof ReflectedFile && ((ReflectedFile)reflected).getFile() != null)
+        {
+            baseDir = ((ReflectedFile)reflected).getFile().getAbsoluteFile().getParentFile();
+        }
+        ConfigParseOptions options = this.parseCache.options(baseDir);
+        Config config = ConfigFactory.parseReader(in, options);
+        if (this.parseCache.usedIncludes(options))
+        {
+            this.markUncacheable();
+        }
+        for (File fallback : this.fallbacks)
+        {
+            config = config.withFallback(this.parseCache.get(fallback));
+        }
         if (config.isEmpty())
         {
             // loadValues null -> reflected exists but was empty
             return MapNode.emptyMap();
         }
-        return (MapNode)this.getConverterManager().convertToNode(config.root().unwrapped());
+        return toMapNode(config.resolve().root());
+    }
+
+    private MapNode toMapNode(ConfigObject object) throws ConversionException
+    {
+        MapNode mapNode = MapNode.emptyMap();
+        for (Entry<String, ConfigValue> entry : object.entrySet())
+        {
+            mapNode.set(entry.getKey(), toNode(entry.getValue()));
+        }
+        return mapNode;
+    }
+
+    /**
+     * Converts a ConfigValue into a Node keeping the original type of numbers
+     *
+     * @param value the ConfigValue
+     *
+     * @return the Node
+     */
+    private Node toNode(ConfigValue value) throws ConversionException
+    {
+        switch (value.valueType())
+        {
+            case OBJECT:
+                return toMapNode((ConfigObject)value);
+            case LIST:
+                ListNode listNode = ListNode.emptyList();
+                for (ConfigValue listed : (ConfigList)value)
+                {
+                    listNode.addNode(toNode(listed));
+                }
+                return listNode;
+            case NUMBER:
+                Number number = (Number)value.unwrapped();
+                if (number instanceof Integer)
+                {
+                    return new IntNode(number.intValue());
+                }
+                if (number instanceof Long)
+                {
+                    return new LongNode(number.longValue());
+                }
+                return new DoubleNode(number.doubleValue());
+            case BOOLEAN:
+                return BooleanNode.of((Boolean)value.unwrapped());
+            case STRING:
+                return new StringNode((String)value.unwrapped());
+            case NULL:
+                return NullNode.emptyNode();
+            default:
+                throw ConversionException.of(this, value, "Unknown type of ConfigValue!");
+        }
     }
 
     // Reflected saving Methods
     @Override
     protected void save(MapNode node, Writer writer, Reflected reflected) throws ConversionException
     {
-        Config config = ConfigFactory.parseMap(getHoconMap(node));
         try
         {
-            writer.append(config.root().render());
+            if (concise)
+            {
+                renderConcise(writer, node);
+                return;
+            }
+            ReflectedFile fRef = null;
+            if (reflected instanceof ReflectedFile)
+            {
+                fRef = (ReflectedFile)reflected;
+            }
+            if (fRef != null && fRef.head() != null && fRef.head().length != 0)
+            {
+                renderComment(writer, fRef.head(), 0);
+                writer.append(LINE_BREAK);
+            }
+            renderFields(writer, node, 0);
+            if (fRef != null && fRef.tail() != null && fRef.tail().length != 0)
+            {
+                writer.append(LINE_BREAK);
+                renderComment(writer, fRef.tail(), 0);
+            }
         }
         catch (IOException ex)
         {
@@ -83,57 +252,240 @@ public class HoconCodec extends ReaderWriterFileCodec
         }
     }
 
-    private Map<String, Object> getHoconMap(MapNode node)
+    /**
+     * Renders the fields of a MapNode each on its own line
+     *
+     * @param writer the Writer to render into
+     * @param node   the MapNode
+     * @param indent the current indentation
+     */
+    private void renderFields(Writer writer, MapNode node, int indent) throws IOException
     {
-        Map<String, Object> map = new LinkedHashMap<String, Object>();
-        buildHoconMap(map, "", node);
-        return map;
+        boolean first = true;
+        for (Entry<String, Node> entry : node.getMappedNodes().entrySet())
+        {
+            Node value = entry.getValue();
+            String[] comments = value.getComments();
+            if (comments != null && comments.length != 0)
+            {
+                if (!first)
+                {
+                    // free line before the comment
+                    writer.append(LINE_BREAK);
+                }
+                renderComment(writer, comments, indent);
+            }
+            renderIndent(writer, indent);
+            renderKey(writer, node.getOriginalKey(entry.getKey()));
+            writer.append(value instanceof MapNode ? " " : " = ");
+            renderValue(writer, value, indent);
+            writer.append(LINE_BREAK);
+            first = false;
+        }
     }
 
-    private void buildHoconMap(Map<String, Object> map, String path, Node node)
+    private void renderValue(Writer writer, Node value, int indent) throws IOException
     {
-        if (node instanceof MapNode)
+        if (value instanceof MapNode)
         {
-            if (((MapNode)node).isEmpty())
+            if (((MapNode)value).isEmpty())
             {
-                map.put(path, new LinkedHashMap<String, Object>());
+                writer.append("{}");
+                return;
             }
-            else
+            writer.append("{").append(LINE_BREAK);
+            renderFields(writer, (MapNode)value, indent + 1);
+            renderIndent(writer, indent);
+            writer.append("}");
+        }
+        else if (value instanceof ListNode)
+        {
+            if (((ListNode)value).isEmpty())
+            {
+                writer.append("[]");
+                return;
+            }
+            writer.append("[").append(LINE_BREAK);
+            Iterator<Node> it = ((ListNode)value).getValue().iterator();
+            while (it.hasNext())
+            {
+                renderIndent(writer, indent + 1);
+                renderValue(writer, it.next(), indent + 1);
+                if (it.hasNext())
+                {
+                    writer.append(",");
+                }
+                writer.append(LINE_BREAK);
+            }
+            renderIndent(writer, indent);
+            writer.append("]");
+        }
+        else
+        {
+            renderScalar(writer, value);
+        }
+    }
+
+    /**
+     * Renders the node as JSON without any whitespace or comments
+     *
+     * @param writer the Writer to render into
+     * @param value  the Node
+     */
+    private void renderConcise(Writer writer, Node value) throws IOException
+    {
+        if (value instanceof MapNode)
+        {
+            MapNode mapNode = (MapNode)value;
+            writer.append("{");
+            boolean first = true;
+            for (Entry<String, Node> entry : mapNode.getMappedNodes().entrySet())
             {
-                for (Map.Entry<String, Node> entry : ((MapNode)node).getMappedNodes().entrySet())
+                if (!first)
                 {
-                    buildHoconMap(map, path + ("".equals(path) ? "" : ".") + entry.getKey(), entry.getValue());
+                    writer.append(",");
                 }
+                renderString(writer, mapNode.getOriginalKey(entry.getKey()));
+                writer.append(":");
+                renderConcise(writer, entry.getValue());
+                first = false;
             }
+            writer.append("}");
         }
-        else if (node instanceof ListNode)
+        else if (value instanceof ListNode)
         {
-            map.put(path, getHoconList((ListNode)node));
+            writer.append("[");
+            boolean first = true;
+            for (Node node : ((ListNode)value).getValue())
+            {
+                if (!first)
+                {
+                    writer.append(",");
+                }
+                renderConcise(writer, node);
+                first = false;
+            }
+            writer.append("]");
         }
         else
         {
-            map.put(path, node.getValue());
+            renderScalar(writer, value);
         }
     }
 
-    protected List<Object> getHoconList(ListNode listNode)
+    private void renderScalar(Writer writer, Node value) throws IOException
     {
-        List<Object> list = new LinkedList<Object>();
-        for (Node node : listNode.getValue())
+        if (value instanceof NullNode)
+        {
+            writer.append("null");
+        }
+        else if (value instanceof BooleanNode || value instanceof ByteNode || value instanceof ShortNode
+            || value instanceof IntNode || value instanceof LongNode)
         {
-            if (node instanceof MapNode)
+            writer.append(value.asText());
+        }
+        else if (value instanceof DoubleNode || value instanceof FloatNode)
+        {
+            double number = ((Number)value.getValue()).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number))
             {
-                list.add(getHoconMap((MapNode)node));
+                // not a valid HOCON number
+                renderString(writer, value.asText());
             }
-            else if (node instanceof ListNode)
+            else
             {
-                list.add(getHoconList((ListNode)node));
+                writer.append(value.asText());
             }
-            else
+        }
+        else
+        {
+            renderString(writer, value.asText());
+        }
+    }
+
+    private void renderKey(Writer writer, String key) throws IOException
+    {
+        // an unquoted include would be read as an include statement
+        if (UNQUOTED_KEY.matcher(key).matches() && !"include".equals(key))
+        {
+            writer.append(key);
+        }
+        else
+        {
+            renderString(writer, key);
+        }
+    }
+
+    /**
+     * Renders a quoted and escaped string
+     *
+     * @param writer the Writer to render into
+     * @param string the string
+     */
+    private void renderString(Writer writer, String string) throws IOException
+    {
+        writer.append('"');
+        for (int i = 0; i < string.length(); i++)
+        {
+            char c = string.charAt(i);
+            switch (c)
             {
-                list.add(node.getValue());
+                case '"':
+                    writer.append("\\\"");
+                    break;
+                case '\\':
+                    writer.append("\\\\");
+                    break;
+                case '\n':
+                    writer.append("\\n");
+                    break;
+                case '\r':
+                    writer.append("\\r");
+                    break;
+                case '\t':
+                    writer.append("\\t");
+                    break;
+                case '\b':
+                    writer.append("\\b");
+                    break;
+                case '\f':
+                    writer.append("\\f");
+                    break;
+                default:
+                    if (Character.isISOControl(c))
+                    {
+                        writer.append(String.format("\\u%04x", (int)c));
+                    }
+                    else
+                    {
+                        writer.append(c);
+                    }
             }
         }
-        return list;
+        writer.append('"');
+    }
+
+    private void renderComment(Writer writer, String[] comments, int indent) throws IOException
+    {
+        for (String comment : comments)
+        {
+            if (comment == null || comment.isEmpty())
+            {
+                continue;
+            }
+            for (String line : comment.split(LINE_BREAK))
+            {
+                renderIndent(writer, indent);
+                writer.append(COMMENT_PREFIX).append(line).append(LINE_BREAK);
+            }
+        }
+    }
+
+    private void renderIndent(Writer writer, int indent) throws IOException
+    {
+        for (int i = 0; i < indent; i++)
+        {
+            writer.append(INDENT);
+        }
     }
 }
@@ -0,0 +1,281 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.hocon;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigIncludeContext;
+import com.typesafe.config.ConfigIncluder;
+import com.typesafe.config.ConfigIncluderFile;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigParseOptions;
+
+/**
+ * Caches parsed HOCON documents used as includes or fallbacks
+ * <p>Entries are keyed by the canonical path of the file and are parsed again as soon as
+ * the last modification time or the size of the file or of any file it included changes.
+ * The cached Configs are immutable and shared between all loads.
+ */
+public final class HoconParseCache
+{
+    private static final String EXTENSION = ".conf";
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Returns the parsed Config of given file parsing it only if it is not cached or changed since
+     *
+     * @param file the file
+     *
+     * @return the Config or an empty Config if the file does not exist
+     */
+    public Config get(File file)
+    {
+        return this.entry(file).config;
+    }
+
+    private Entry entry(File file)
+    {
+        String key = key(file);
+        Stamp stamp = new Stamp(file);
+        if (stamp.lastModified == 0L && !file.exists())
+        {
+            this.entries.remove(key);
+            // a missing include is still a dependency, creating it changes the including document
+            return new Entry(ConfigFactory.empty(), Collections.singletonList(stamp));
+        }
+        Entry entry = this.entries.get(key);
+        if (entry != null && entry.isCurrent())
+        {
+            return entry;
+        }
+        List<Stamp> stamps = new ArrayList<Stamp>();
+        stamps.add(stamp);
+        Config config = ConfigFactory.parseFile(file, this.options(file.getParentFile(), stamps));
+        entry = new Entry(config, stamps);
+        this.entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Returns the options to parse a document with using this cache for file includes
+     *
+     * @param baseDir the directory to resolve relative includes against or null for the working directory
+     *
+     * @return the ConfigParseOptions
+     */
+    public ConfigParseOptions options(File baseDir)
+    {
+        return this.options(baseDir, null);
+    }
+
+    private ConfigParseOptions options(File baseDir, List<Stamp> dependencies)
+    {
+        return ConfigParseOptions.defaults().setIncluder(new CachingIncluder(this, baseDir, null, new AtomicBoolean(),
+                                                                            dependencies));
+    }
+
+    /**
+     * Returns whether a document parsed with given options included another document
+     *
+     * @param options the options created by {@link #options(File)}
+     *
+     * @return true if the includer of the options got used
+     */
+    public boolean usedIncludes(ConfigParseOptions options)
+    {
+        ConfigIncluder includer = options.getIncluder();
+        return includer instanceof CachingIncluder && ((CachingIncluder)includer).used.get();
+    }
+
+    /**
+     * Removes given file from the cache
+     *
+     * @param file the file
+     */
+    public void invalidate(File file)
+    {
+        this.entries.remove(key(file));
+    }
+
+    /**
+     * Removes all files from the cache
+     */
+    public void clear()
+    {
+        this.entries.clear();
+    }
+
+    private static String key(File file)
+    {
+        try
+        {
+            return file.getCanonicalPath();
+        }
+        catch (IOException e)
+        {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * The modification time and size of a file when it got parsed
+     */
+    private static final class Stamp
+    {
+        private final File file;
+        private final long lastModified;
+        private final long length;
+
+        private Stamp(File file)
+        {
+            this.file = file;
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        private boolean isCurrent()
+        {
+            return this.file.lastModified() == this.lastModified && this.file.length() == this.length;
+        }
+    }
+
+    private static final class Entry
+    {
+        private final Config config;
+        private final List<Stamp> stamps;
+
+        /**
+         * @param config the parsed Config
+         * @param stamps the stamps of the file and every file it included directly or indirectly
+         */
+        private Entry(Config config, List<Stamp> stamps)
+        {
+            this.config = config;
+            this.stamps = stamps;
+        }
+
+        private boolean isCurrent()
+        {
+            for (Stamp stamp : this.stamps)
+            {
+                if (!stamp.isCurrent())
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Resolves file includes relative to a base directory through the cache
+     * <p>Includes that are not files are handed to the fallback includer
+     */
+    private static final class CachingIncluder implements ConfigIncluder, ConfigIncluderFile
+    {
+        private final HoconParseCache cache;
+        private final File baseDir;
+        private final ConfigIncluder fallback;
+        private final AtomicBoolean used;
+        private final List<Stamp> dependencies;
+
+        private CachingIncluder(HoconParseCache cache, File baseDir, ConfigIncluder fallback, AtomicBoolean used,
+                                List<Stamp> dependencies)
+        {
+            this.cache = cache;
+            this.baseDir = baseDir;
+            this.fallback = fallback;
+            this.used = used;
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public ConfigIncluder withFallback(ConfigIncluder fallback)
+        {
+            if (this.fallback == fallback || fallback == this)
+            {
+                return this;
+            }
+            return new CachingIncluder(this.cache, this.baseDir, fallback, this.used, this.dependencies);
+        }
+
+        @Override
+        public ConfigObject include(ConfigIncludeContext context, String what)
+        {
+            this.used.set(true);
+            File file = this.resolve(what);
+            if (!file.isFile() && !what.endsWith(EXTENSION))
+            {
+                File withExtension = this.resolve(what + EXTENSION);
+                if (withExtension.isFile())
+                {
+                    file = withExtension;
+                }
+            }
+            if (file.isFile() || this.fallback == null)
+            {
+                return this.get(file);
+            }
+            return this.fallback.include(context, what);
+        }
+
+        @Override
+        public ConfigObject includeFile(ConfigIncludeContext context, File what)
+        {
+            this.used.set(true);
+            return this.get(what.isAbsolute() ? what : this.resolve(what.getPath()));
+        }
+
+        /**
+         * Returns the cached document and records the files it depends on for the including document
+         */
+        private ConfigObject get(File file)
+        {
+            Entry entry = this.cache.entry(file);
+            if (this.dependencies != null)
+            {
+                this.dependencies.addAll(entry.stamps);
+            }
+            return entry.config.root();
+        }
+
+        private File resolve(String what)
+        {
+            File file = new File(what);
+            if (file.isAbsolute() || this.baseDir == null)
+            {
+                return file;
+            }
+            return new File(this.baseDir, what);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.hocon;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.cubeisland.engine.reflect.Reflector;
+import de.cubeisland.engine.reflect.Section;
+import de.cubeisland.engine.reflect.codec.NodeCache;
+import de.cubeisland.engine.reflect.codec.hocon.HoconCodec;
+import de.cubeisland.engine.reflect.codec.hocon.ReflectedHocon;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+public class HoconCodecTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Reflector reflector;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+    }
+
+    private static void write(File file, String content) throws Exception
+    {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try
+        {
+            writer.write(content);
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        File file = folder.newFile("types.conf");
+        Types saved = reflector.create(Types.class);
+        saved.integer = -7;
+        saved.number = 5000000000L;
+        saved.decimal = 0.25;
+        saved.bool = true;
+        saved.string = "a \"quoted\"\nstring with # and \\ include";
+        saved.list = new ArrayList<Integer>(Arrays.asList(1, 2, 3));
+        saved.map = new LinkedHashMap<String, Long>();
+        saved.map.put("include", 1L);
+        saved.map.put("with space", Long.MAX_VALUE);
+        saved.inner.value = "inner";
+        saved.save(file);
+
+        Types loaded = reflector.load(Types.class, file, false);
+        assertEquals(saved.integer, loaded.integer);
+        assertEquals(saved.number, loaded.number);
+        assertEquals(saved.decimal, loaded.decimal, 0);
+        assertEquals(saved.bool, loaded.bool);
+        assertEquals(saved.string, loaded.string);
+        assertEquals(saved.list, loaded.list);
+        assertEquals(saved.map, loaded.map);
+        assertEquals(saved.inner.value, loaded.inner.value);
+    }
+
+    @Test
+    public void testSubstitution() throws Exception
+    {
+        File file = folder.newFile("substitution.conf");
+        write(file, "integer = 3\nnumber = ${integer}\ninner { value = from ${integer} }\n");
+        Types loaded = reflector.load(Types.class, file, false);
+        assertEquals(3, loaded.integer);
+        assertEquals(3L, loaded.number);
+        assertEquals("from 3", loaded.inner.value);
+    }
+
+    @Test
+    public void testChangedIncludeIsReadAgain() throws Exception
+    {
+        File included = folder.newFile("included.conf");
+        File file = folder.newFile("including.conf");
+        write(included, "string = first\n");
+        write(file, "include \"included.conf\"\ninteger = 2\n");
+        Types loaded = reflector.load(Types.class, file, false);
+        assertEquals("first", loaded.string);
+        assertEquals(2, loaded.integer);
+        // the size changes so the change is detected even within the timestamp resolution
+        write(included, "string = second value\n");
+        loaded = reflector.load(Types.class, file, false);
+        assertEquals("second value", loaded.string);
+    }
+
+    @Test
+    public void testChangedNestedIncludeIsReadAgain() throws Exception
+    {
+        File nested = folder.newFile("nested.conf");
+        File included = folder.newFile("included.conf");
+        File file = folder.newFile("including.conf");
+        write(nested, "string = first\n");
+        write(included, "include \"nested.conf\"\nnumber = 4\n");
+        write(file, "include \"included.conf\"\ninteger = 2\n");
+        Types loaded = reflector.load(Types.class, file, false);
+        assertEquals("first", loaded.string);
+        assertEquals(4L, loaded.number);
+        // only the nested include changes, the cached included document depends on it
+        write(nested, "string = second value\n");
+        loaded = reflector.load(Types.class, file, false);
+        assertEquals("second value", loaded.string);
+        assertEquals(4L, loaded.number);
+    }
+
+    @Test
+    public void testIncludingDocumentIsNotCached() throws Exception
+    {
+        File cache = folder.newFolder("cache");
+        reflector.getCodecManager().getCodec(HoconCodec.class).setNodeCache(new NodeCache(cache));
+        File included = folder.newFile("included.conf");
+        File file = folder.newFile("including.conf");
+        File plain = folder.newFile("plain.conf");
+        write(included, "string = first\n");
+        write(file, "include \"included.conf\"\ninteger = 2\n");
+        write(plain, "integer = 3\n");
+
+        assertEquals(3, reflector.load(Types.class, plain, false).integer);
+        assertEquals(1, cache.listFiles().length);
+        assertEquals("first", reflector.load(Types.class, file, false).string);
+        assertEquals(1, cache.listFiles().length);
+        // the including file is unchanged, a snapshot of it would still contain the old value
+        write(included, "string = second value\n");
+        assertEquals("second value", reflector.load(Types.class, file, false).string);
+    }
+
+    public static class Types extends ReflectedHocon
+    {
+        public int integer = 1;
+        public long number = 1;
+        public double decimal = 1;
+        public boolean bool = false;
+        public String string = "";
+        public List<Integer> list = new ArrayList<Integer>();
+        public Map<String, Long> map = new LinkedHashMap<String, Long>();
+        public Inner inner = new Inner();
+
+        public class Inner implements Section
+        {
+            public String value = "";
+        }
+    }
+}
@@ -86,6 +86,21 @@ public class HoconReflectedTest
         assertEqualsDeep(codec.getConverterManager(), test2, reflected);
     }
 
+    @Test
+    public void testConcise() throws Exception
+    {
+        codec.setConcise(true);
+        FileWriter writer = new FileWriter(file);
+        codec.saveReflected(test1, writer);
+        writer.close();
+        final ReflectedTest reflected = factory.create(ReflectedTest.class);
+        FileReader reader = new FileReader(file);
+        codec.loadReflected(reflected, reader);
+        reader.close();
+        file.delete();
+        assertEqualsDeep(codec.getConverterManager(), test1, reflected);
+    }
+
     @Test(expected = DuplicatedPathException.class)
     public void test3() throws Exception
     {
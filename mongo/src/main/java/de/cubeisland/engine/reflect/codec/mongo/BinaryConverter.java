@@ -0,0 +1,63 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo;
+
+import java.util.List;
+
+import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.ConverterManager;
+import de.cubeisland.engine.converter.converter.ClassedConverter;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.reflect.codec.mongo.node.BinaryNode;
+
+/**
+ * Converts byte arrays into {@link BinaryNode}s stored as BSON binary
+ * <p>Byte arrays stored as arrays of numbers are still read
+ */
+public class BinaryConverter implements ClassedConverter<byte[]>
+{
+    public Node toNode(byte[] object, ConverterManager manager) throws ConversionException
+    {
+        return new BinaryNode(object);
+    }
+
+    public byte[] fromNode(Node node, Class<? extends byte[]> type, ConverterManager manager) throws ConversionException
+    {
+        if (node instanceof BinaryNode)
+        {
+            return ((BinaryNode)node).getBytes();
+        }
+        if (node instanceof ListNode)
+        {
+            List<Node> nodes = ((ListNode)node).getValue();
+            byte[] bytes = new byte[nodes.size()];
+            for (int i = 0; i < bytes.length; i++)
+            {
+                bytes[i] = manager.convertFromNode(nodes.get(i), byte.class);
+            }
+            return bytes;
+        }
+        throw ConversionException.of(this, node, "Not a BinaryNode");
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo;
+
+import java.util.Date;
+
+import com.mongodb.DB;
+import com.mongodb.DBRefBase;
+import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.node.BooleanNode;
+import de.cubeisland.engine.converter.node.DoubleNode;
+import de.cubeisland.engine.converter.node.IntNode;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.LongNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.NullNode;
+import de.cubeisland.engine.converter.node.StringNode;
+import de.cubeisland.engine.reflect.codec.mongo.node.BinaryNode;
+import de.cubeisland.engine.reflect.codec.mongo.node.DBRefBaseNode;
+import de.cubeisland.engine.reflect.codec.mongo.node.DateNode;
+import de.cubeisland.engine.reflect.codec.mongo.node.ObjectIdNode;
+import org.bson.types.ObjectId;
+
+import static de.cubeisland.engine.reflect.codec.mongo.BsonNodeWriter.*;
+
+/**
+ * Decodes BSON directly into Nodes
+ * <p>Documents consisting of <code>$ref</code> and <code>$id</code> are decoded into a {@link DBRefBaseNode}.
+ * Binary values are decoded into {@link BinaryNode}s. Null values are left out of documents but kept in arrays
+ * to keep the indices, matching {@link BsonNodeWriter}.
+ */
+final class BsonNodeReader
+{
+    private final byte[] bytes;
+    private final DB db;
+    private int position;
+
+    /**
+     * @param bytes the BSON bytes
+     * @param db    the database DBRefs point into
+     */
+    BsonNodeReader(byte[] bytes, DB db)
+    {
+        this.bytes = bytes;
+        this.db = db;
+    }
+
+    MapNode decode() throws ConversionException
+    {
+        this.position = 0;
+        Node node = this.readDocument();
+        if (node instanceof MapNode)
+        {
+            return (MapNode)node;
+        }
+        throw ConversionException.of(this, node, "The BSON document is a DBRef!");
+    }
+
+    private Node readDocument() throws ConversionException
+    {
+        int end = this.position + this.readInt() - 1;
+        MapNode mapNode = MapNode.emptyMap();
+        String ref = null;
+        Object id = null;
+        while (this.position < end)
+        {
+            byte type = this.readByte();
+            String key = this.readCString();
+            Node node = this.readValue(type);
+            if (REF.equals(key) && node instanceof StringNode)
+            {
+                ref = ((StringNode)node).getValue();
+            }
+            else if (ID.equals(key))
+            {
+                id = node.getValue();
+            }
+            if (!(node instanceof NullNode))
+            {
+                mapNode.set(key, node);
+            }
+        }
+        this.expectEnd();
+        if (ref != null && id != null && mapNode.getMappedNodes().size() == 2)
+        {
+            return new DBRefBaseNode(new DBRefBase(this.db, ref, id));
+        }
+        return mapNode;
+    }
+
+    private ListNode readArray() throws ConversionException
+    {
+        int end = this.position + this.readInt() - 1;
+        ListNode listNode = ListNode.emptyList();
+        while (this.position < end)
+        {
+            byte type = this.readByte();
+            this.readCString(); // the index
+            listNode.addNode(this.readValue(type));
+        }
+        this.expectEnd();
+        return listNode;
+    }
+
+    private Node readValue(byte type) throws ConversionException
+    {
+        switch (type)
+        {
+            case DOUBLE:
+                return new DoubleNode(Double.longBitsToDouble(this.readLong()));
+            case STRING:
+                int length = this.readInt();
+                String string = new String(this.bytes, this.position, length - 1, UTF8);
+                this.position += length;
+                return new StringNode(string);
+            case DOCUMENT:
+                return this.readDocument();
+            case ARRAY:
+                return this.readArray();
+            case BINARY:
+                byte[] binary = new byte[this.readInt()];
+                this.readByte(); // subtype
+                for (int i = 0; i < binary.length; i++)
+                {
+                    binary[i] = this.readByte();
+                }
+                return new BinaryNode(binary);
+            case OBJECT_ID:
+                byte[] id = new byte[12];
+                System.arraycopy(this.bytes, this.position, id, 0, 12);
+                this.position += 12;
+                return new ObjectIdNode(new ObjectId(id));
+            case BOOLEAN:
+                return BooleanNode.of(this.readByte() != 0);
+            case DATE:
+                return new DateNode(new Date(this.readLong()));
+            case NULL:
+                return NullNode.emptyNode();
+            case INT32:
+                return new IntNode(this.readInt());
+            case TIMESTAMP:
+            case INT64:
+                return new LongNode(this.readLong());
+            default:
+                throw ConversionException.of(this, type, "Unsupported BSON type!");
+        }
+    }
+
+    private void expectEnd() throws ConversionException
+    {
+        if (this.readByte() != 0)
+        {
+            throw ConversionException.of(this, this.position, "Malformed BSON document!");
+        }
+    }
+
+    private String readCString()
+    {
+        int start = this.position;
+        while (this.bytes[this.position] != 0)
+        {
+            this.position++;
+        }
+        return new String(this.bytes, start, this.position++ - start, UTF8);
+    }
+
+    private byte readByte()
+    {
+        return this.bytes[this.position++];
+    }
+
+    private int readInt()
+    {
+        return (this.bytes[this.position++] & 0xFF)
+            | (this.bytes[this.position++] & 0xFF) << 8
+            | (this.bytes[this.position++] & 0xFF) << 16
+            | (this.bytes[this.position++] & 0xFF) << 24;
+    }
+
+    private long readLong()
+    {
+        return (this.readInt() & 0xFFFFFFFFL) | (long)this.readInt() << 32;
+    }
+}
@@ -0,0 +1,299 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo;
+
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.mongodb.DBRefBase;
+import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.node.BooleanNode;
+import de.cubeisland.engine.converter.node.ByteNode;
+import de.cubeisland.engine.converter.node.CharNode;
+import de.cubeisland.engine.converter.node.DoubleNode;
+import de.cubeisland.engine.converter.node.FloatNode;
+import de.cubeisland.engine.converter.node.IntNode;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.LongNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.NullNode;
+import de.cubeisland.engine.converter.node.ShortNode;
+import de.cubeisland.engine.converter.node.StringNode;
+import de.cubeisland.engine.reflect.codec.mongo.node.BinaryNode;
+import de.cubeisland.engine.reflect.codec.mongo.node.DBRefBaseNode;
+import de.cubeisland.engine.reflect.codec.mongo.node.DateNode;
+import de.cubeisland.engine.reflect.codec.mongo.node.ObjectIdNode;
+import org.bson.types.ObjectId;
+
+/**
+ * Encodes Nodes directly into BSON
+ * <p>Values are encoded the same way the driver encodes the DBObject created by {@link MongoDBCodec}.
+ * {@link BinaryNode}s are encoded as binary, other lists of bytes as arrays. NullNodes are left out of documents but kept in arrays,
+ * which is what {@link BsonNodeReader} reads back.
+ */
+final class BsonNodeWriter
+{
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final byte DOUBLE = 0x01;
+    static final byte STRING = 0x02;
+    static final byte DOCUMENT = 0x03;
+    static final byte ARRAY = 0x04;
+    static final byte BINARY = 0x05;
+    static final byte OBJECT_ID = 0x07;
+    static final byte BOOLEAN = 0x08;
+    static final byte DATE = 0x09;
+    static final byte NULL = 0x0A;
+    static final byte INT32 = 0x10;
+    static final byte TIMESTAMP = 0x11;
+    static final byte INT64 = 0x12;
+
+    static final String REF = "$ref";
+    static final String ID = "$id";
+
+    private byte[] buffer = new byte[512];
+    private int position = 0;
+
+    /**
+     * Encodes the MapNode as a document
+     *
+     * @param node the MapNode
+     *
+     * @return the BSON bytes
+     */
+    byte[] encode(MapNode node) throws ConversionException
+    {
+        this.position = 0;
+        this.writeDocument(node);
+        byte[] result = new byte[this.position];
+        System.arraycopy(this.buffer, 0, result, 0, this.position);
+        return result;
+    }
+
+    private void writeDocument(MapNode node) throws ConversionException
+    {
+        int start = this.startDocument();
+        for (Entry<String, Node> entry : node.getMappedNodes().entrySet())
+        {
+            if (!(entry.getValue() instanceof NullNode))
+            {
+                this.writeElement(entry.getKey(), entry.getValue());
+            }
+        }
+        this.endDocument(start);
+    }
+
+    private void writeArray(List<Node> list) throws ConversionException
+    {
+        int start = this.startDocument();
+        for (int i = 0; i < list.size(); i++)
+        {
+            this.writeElement(String.valueOf(i), list.get(i));
+        }
+        this.endDocument(start);
+    }
+
+    private int startDocument()
+    {
+        int start = this.position;
+        this.writeInt(0); // length gets written when the document is done
+        return start;
+    }
+
+    private void endDocument(int start)
+    {
+        this.writeByte(0);
+        int end = this.position;
+        this.position = start;
+        this.writeInt(end - start);
+        this.position = end;
+    }
+
+    private void writeElement(String key, Node node) throws ConversionException
+    {
+        if (node instanceof MapNode)
+        {
+            this.writeHeader(DOCUMENT, key);
+            this.writeDocument((MapNode)node);
+        }
+        else if (node instanceof ListNode)
+        {
+            List<Node> list = ((ListNode)node).getValue();
+            if (node instanceof BinaryNode)
+            {
+                this.writeHeader(BINARY, key);
+                this.writeInt(list.size());
+                this.writeByte(0); // generic subtype
+                for (Node value : list)
+                {
+                    this.writeByte(((ByteNode)value).getValue());
+                }
+            }
+            else
+            {
+                this.writeHeader(ARRAY, key);
+                this.writeArray(list);
+            }
+        }
+        else if (node instanceof StringNode || node instanceof CharNode)
+        {
+            this.writeHeader(STRING, key);
+            this.writeString(node.asText());
+        }
+        else if (node instanceof IntNode || node instanceof ShortNode || node instanceof ByteNode)
+        {
+            this.writeHeader(INT32, key);
+            this.writeInt(((Number)node.getValue()).intValue());
+        }
+        else if (node instanceof LongNode)
+        {
+            this.writeHeader(INT64, key);
+            this.writeLong(((LongNode)node).getValue());
+        }
+        else if (node instanceof DoubleNode || node instanceof FloatNode)
+        {
+            this.writeHeader(DOUBLE, key);
+            this.writeLong(Double.doubleToRawLongBits(((Number)node.getValue()).doubleValue()));
+        }
+        else if (node instanceof BooleanNode)
+        {
+            this.writeHeader(BOOLEAN, key);
+            this.writeByte(((BooleanNode)node).getValue() ? 1 : 0);
+        }
+        else if (node instanceof DateNode)
+        {
+            this.writeHeader(DATE, key);
+            this.writeLong(((DateNode)node).getValue().getTime());
+        }
+        else if (node instanceof ObjectIdNode)
+        {
+            this.writeHeader(OBJECT_ID, key);
+            this.writeBytes(((ObjectIdNode)node).getValue().toByteArray());
+        }
+        else if (node instanceof DBRefBaseNode)
+        {
+            DBRefBase ref = ((DBRefBaseNode)node).getValue();
+            this.writeHeader(DOCUMENT, key);
+            int start = this.startDocument();
+            this.writeHeader(STRING, REF);
+            this.writeString(ref.getRef());
+            this.writeObject(ID, ref.getId());
+            this.endDocument(start);
+        }
+        else if (node instanceof NullNode)
+        {
+            this.writeHeader(NULL, key);
+        }
+        else
+        {
+            throw ConversionException.of(this, node, "Node cannot be encoded into BSON!");
+        }
+    }
+
+    /**
+     * Writes the id of a DBRef
+     */
+    private void writeObject(String key, Object value) throws ConversionException
+    {
+        if (value instanceof ObjectId)
+        {
+            this.writeElement(key, new ObjectIdNode((ObjectId)value));
+        }
+        else if (value instanceof String)
+        {
+            this.writeElement(key, new StringNode((String)value));
+        }
+        else if (value instanceof Integer)
+        {
+            this.writeElement(key, new IntNode((Integer)value));
+        }
+        else if (value instanceof Long)
+        {
+            this.writeElement(key, new LongNode((Long)value));
+        }
+        else if (value instanceof Date)
+        {
+            this.writeElement(key, new DateNode((Date)value));
+        }
+        else
+        {
+            throw ConversionException.of(this, value, "DBRef id cannot be encoded into BSON!");
+        }
+    }
+
+    private void writeHeader(byte type, String key)
+    {
+        this.writeByte(type);
+        this.writeBytes(key.getBytes(UTF8));
+        this.writeByte(0);
+    }
+
+    private void writeString(String value)
+    {
+        byte[] bytes = value.getBytes(UTF8);
+        this.writeInt(bytes.length + 1);
+        this.writeBytes(bytes);
+        this.writeByte(0);
+    }
+
+    private void ensureCapacity(int additional)
+    {
+        if (this.position + additional > this.buffer.length)
+        {
+            byte[] grown = new byte[Math.max(this.buffer.length * 2, this.position + additional)];
+            System.arraycopy(this.buffer, 0, grown, 0, this.position);
+            this.buffer = grown;
+        }
+    }
+
+    private void writeByte(int value)
+    {
+        this.ensureCapacity(1);
+        this.buffer[this.position++] = (byte)value;
+    }
+
+    private void writeBytes(byte[] bytes)
+    {
+        this.ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+        this.position += bytes.length;
+    }
+
+    private void writeInt(int value)
+    {
+        this.ensureCapacity(4);
+        this.buffer[this.position++] = (byte)value;
+        this.buffer[this.position++] = (byte)(value >>> 8);
+        this.buffer[this.position++] = (byte)(value >>> 16);
+        this.buffer[this.position++] = (byte)(value >>> 24);
+    }
+
+    private void writeLong(long value)
+    {
+        this.writeInt((int)value);
+        this.writeInt((int)(value >>> 32));
+    }
+}
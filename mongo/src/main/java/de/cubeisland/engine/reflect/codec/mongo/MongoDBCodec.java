@@ -22,46 +22,194 @@
  */
 package de.cubeisland.engine.reflect.codec.mongo;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 import com.mongodb.DBRefBase;
 import de.cubeisland.engine.converter.ConversionException;
 import de.cubeisland.engine.converter.ConverterManager;
+import de.cubeisland.engine.converter.node.BooleanNode;
+import de.cubeisland.engine.converter.node.DoubleNode;
+import de.cubeisland.engine.converter.node.IntNode;
 import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.LongNode;
 import de.cubeisland.engine.converter.node.MapNode;
 import de.cubeisland.engine.converter.node.Node;
 import de.cubeisland.engine.converter.node.NullNode;
+import de.cubeisland.engine.converter.node.Path;
+import de.cubeisland.engine.converter.node.StringNode;
 import de.cubeisland.engine.converter.node.ContainerNode;
 import de.cubeisland.engine.reflect.Reflected;
 import de.cubeisland.engine.reflect.Reflector;
+import de.cubeisland.engine.reflect.Section;
+import de.cubeisland.engine.reflect.SectionConverter;
 import de.cubeisland.engine.reflect.codec.Codec;
+import de.cubeisland.engine.reflect.codec.mongo.annotations.Indexed;
+import de.cubeisland.engine.reflect.codec.mongo.annotations.Lazy;
+import de.cubeisland.engine.reflect.codec.mongo.node.BinaryNode;
 import de.cubeisland.engine.reflect.codec.mongo.node.DBRefBaseNode;
 import de.cubeisland.engine.reflect.codec.mongo.node.DateNode;
 import de.cubeisland.engine.reflect.codec.mongo.node.ObjectIdNode;
 import de.cubeisland.engine.reflect.exception.CodecIOException;
 import org.bson.types.ObjectId;
 
+import static de.cubeisland.engine.reflect.annotations.Name.SEPARATOR;
+
 public class MongoDBCodec extends Codec<DBObject, DBObject>
 {
+    private final ConcurrentMap<Identity, WeakReference<ReflectedDBObject>> identities = new ConcurrentHashMap<Identity, WeakReference<ReflectedDBObject>>();
+    private final ConcurrentMap<Class<?>, Map<Field, String>> lazyFields = new ConcurrentHashMap<Class<?>, Map<Field, String>>();
+    private final ConcurrentMap<Class<?>, List<DBObject[]>> indexes = new ConcurrentHashMap<Class<?>, List<DBObject[]>>();
+    private final Set<String> ensuredIndexes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     @Override
     protected void onInit()
     {
         final ConverterManager cm = getConverterManager();
         cm.registerConverter(new DateConverter(), Date.class);
+        cm.registerConverter(new BinaryConverter(), byte[].class);
         cm.registerConverter(new ReferenceConverter(getReflector()), Reference.class);
     }
 
+    /**
+     * Returns the already loaded reflected for given document
+     *
+     * @param clazz    the reflected class
+     * @param database the name of the database
+     * @param ref      the name of the collection
+     * @param id       the id of the document
+     *
+     * @return the reflected or null if not loaded yet, not an instance of given class or the id is null
+     */
+    final <T extends ReflectedDBObject> T getIdentity(Class<T> clazz, String database, String ref, Object id)
+    {
+        if (id == null)
+        {
+            return null;
+        }
+        Identity identity = new Identity(database, ref, id);
+        WeakReference<ReflectedDBObject> reference = this.identities.get(identity);
+        if (reference == null)
+        {
+            return null;
+        }
+        ReflectedDBObject reflected = reference.get();
+        if (reflected == null)
+        {
+            this.identities.remove(identity, reference);
+            return null;
+        }
+        return clazz.isInstance(reflected) ? clazz.cast(reflected) : null;
+    }
+
+    /**
+     * Loads given document without saving back into it and remembers the reflected by its id
+     * <p>A document that got loaded already is not loaded again. Documents without an _id are always loaded.
+     *
+     * @param clazz    the reflected class
+     * @param database the name of the database
+     * @param ref      the name of the collection
+     * @param dbo      the document
+     *
+     * @return the reflected
+     */
+    final <T extends ReflectedDBObject> T loadIdentity(Class<T> clazz, String database, String ref, DBObject dbo)
+    {
+        Object id = dbo.get("_id");
+        if (id == null)
+        {
+            return this.getReflector().load(clazz, dbo, false);
+        }
+        T reflected = this.getIdentity(clazz, database, ref, id);
+        if (reflected == null)
+        {
+            reflected = this.getReflector().load(clazz, dbo, false);
+            this.identities.put(new Identity(database, ref, id), new WeakReference<ReflectedDBObject>(reflected));
+        }
+        return reflected;
+    }
+
+    /**
+     * Normalizes numeric ids so ids matching on the server are equal
+     * <p>The server compares numbers by value, so a document stored with the id 1L is found by the id 1
+     *
+     * @param id the id
+     *
+     * @return the normalized id
+     */
+    static Object normalizeId(Object id)
+    {
+        if (id instanceof Number)
+        {
+            Number number = (Number)id;
+            if (number.doubleValue() == number.longValue())
+            {
+                return number.longValue();
+            }
+            return number.doubleValue();
+        }
+        return id;
+    }
+
+    /**
+     * Forgets all loaded referenced documents
+     */
+    public final void clearIdentities()
+    {
+        this.identities.clear();
+    }
+
     @Override
     public void loadReflected(Reflected reflected, DBObject dbo)
     {
         try
         {
-            fillReflected(reflected, this.load(dbo, reflected));
+            this.fill(reflected, this.load(dbo, reflected));
+        }
+        catch (ConversionException ex)
+        {
+            if (reflected.useStrictExceptionPolicy())
+            {
+                throw new CodecIOException("Could not load reflected", ex);
+            }
+            Reflector.LOGGER.warning("Could not load reflected" + ex);
+        }
+    }
+
+    /**
+     * Loads the reflected from a BSON document without creating a DBObject
+     *
+     * @param reflected the reflected to load
+     * @param bson      the BSON document
+     * @param db        the database DBRefs in the document point into
+     */
+    public void decodeReflected(Reflected reflected, byte[] bson, DB db)
+    {
+        try
+        {
+            try
+            {
+                this.fill(reflected, new BsonNodeReader(bson, db).decode());
+            }
+            catch (IndexOutOfBoundsException ex)
+            {
+                throw ConversionException.of(this, bson, "Truncated BSON document!", ex);
+            }
         }
         catch (ConversionException ex)
         {
@@ -73,12 +221,367 @@ public class MongoDBCodec extends Codec<DBObject, DBObject>
         }
     }
 
+    private void fill(Reflected reflected, MapNode node) throws ConversionException
+    {
+        fillReflected(reflected, node);
+        if (reflected instanceof ReflectedDBObject)
+        {
+            ReflectedDBObject dbReflected = (ReflectedDBObject)reflected;
+            if (!reflected.isChild())
+            {
+                this.trackId(dbReflected, node);
+            }
+            // child reflected inherit into the loaded node so there is nothing to compare against
+            dbReflected.setSnapshot(reflected.isChild() ? null : node);
+            Set<String> unloaded = new HashSet<String>();
+            for (String path : this.getLazyFields(dbReflected.getClass()).values())
+            {
+                if (node.get(new Path(SEPARATOR, path)) == null)
+                {
+                    unloaded.add(path);
+                }
+            }
+            dbReflected.setUnloaded(unloaded);
+        }
+    }
+
+    /**
+     * Remembers the _id of the node on the reflected or adds the remembered _id to a node without one
+     */
+    private void trackId(ReflectedDBObject reflected, MapNode node) throws ConversionException
+    {
+        Node id = node.get("_id");
+        if (id == null || id instanceof NullNode)
+        {
+            if (reflected.getId() != null)
+            {
+                node.set("_id", this.convertObjectToNode(reflected.getId()));
+            }
+        }
+        else
+        {
+            reflected.setId(this.convertNode(id));
+        }
+    }
+
+    /**
+     * Converts the reflected leaving out lazy fields that did not get loaded
+     */
+    private MapNode convert(Reflected reflected)
+    {
+        MapNode node = convertReflected(reflected);
+        if (reflected instanceof ReflectedDBObject)
+        {
+            for (String path : ((ReflectedDBObject)reflected).getUnloaded())
+            {
+                node.remove(new Path(SEPARATOR, path));
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns the lazy fields of given class with their paths
+     *
+     * @param clazz the reflected class
+     *
+     * @return the paths of the lazy fields
+     */
+    final Map<Field, String> getLazyFields(Class<? extends ReflectedDBObject> clazz)
+    {
+        Map<Field, String> fields = this.lazyFields.get(clazz);
+        if (fields == null)
+        {
+            fields = new LinkedHashMap<Field, String>();
+            SectionConverter converter = this.getConverterManager().getConverterByClass(SectionConverter.class);
+            for (Field field : converter.getReflectedFields(clazz))
+            {
+                if (field.isAnnotationPresent(Lazy.class))
+                {
+                    fields.put(field, converter.getPathFor(field).asString(SEPARATOR).toLowerCase());
+                }
+            }
+            fields = Collections.unmodifiableMap(fields);
+            this.lazyFields.putIfAbsent(clazz, fields);
+        }
+        return fields;
+    }
+
+    /**
+     * Returns the projection excluding all lazy fields of given class
+     *
+     * @param clazz the reflected class
+     *
+     * @return the projection
+     */
+    public DBObject getProjection(Class<? extends ReflectedDBObject> clazz)
+    {
+        DBObject projection = new BasicDBObject();
+        for (String path : this.getLazyFields(clazz).values())
+        {
+            projection.put(path, 0);
+        }
+        return projection;
+    }
+
+    /**
+     * Creates the indexes declared with {@link Indexed} in the class and its sections
+     * <p>The indexes are only created once per class and collection. If creating an index fails the next call
+     * tries again. Concurrent first calls may both create the indexes, which the server ignores.
+     *
+     * @param clazz      the reflected class
+     * @param collection the collection to create the indexes in
+     */
+    public void ensureIndexes(Class<? extends ReflectedDBObject> clazz, DBCollection collection)
+    {
+        String key = clazz.getName() + "@" + collection.getFullName();
+        if (!this.ensuredIndexes.contains(key))
+        {
+            for (DBObject[] index : this.getIndexes(clazz))
+            {
+                collection.createIndex(index[0], index[1]);
+            }
+            this.ensuredIndexes.add(key);
+        }
+    }
+
+    /**
+     * Returns the keys and options of all indexes declared in given class
+     */
+    private List<DBObject[]> getIndexes(Class<? extends ReflectedDBObject> clazz)
+    {
+        List<DBObject[]> list = this.indexes.get(clazz);
+        if (list == null)
+        {
+            Map<String, DBObject[]> byName = new LinkedHashMap<String, DBObject[]>();
+            this.collectIndexes(clazz, "", byName);
+            list = Collections.unmodifiableList(new ArrayList<DBObject[]>(byName.values()));
+            this.indexes.putIfAbsent(clazz, list);
+        }
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collectIndexes(Class<? extends Section> clazz, String prefix, Map<String, DBObject[]> byName)
+    {
+        SectionConverter converter = this.getConverterManager().getConverterByClass(SectionConverter.class);
+        for (Field field : converter.getReflectedFields(clazz))
+        {
+            String path = prefix + converter.getPathFor(field).asString(SEPARATOR).toLowerCase();
+            if (field.isAnnotationPresent(Indexed.class))
+            {
+                Indexed indexed = field.getAnnotation(Indexed.class);
+                String name = indexed.name().isEmpty() ? path : indexed.name();
+                DBObject[] index = byName.get(name);
+                if (index == null)
+                {
+                    index = new DBObject[]{new BasicDBObject(), new BasicDBObject("name", name)};
+                    byName.put(name, index);
+                }
+                index[0].put(path, indexed.order());
+                if (indexed.unique())
+                {
+                    index[1].put("unique", true);
+                }
+            }
+            if (Section.class.isAssignableFrom(field.getType()))
+            {
+                this.collectIndexes((Class<? extends Section>)field.getType(), path + SEPARATOR, byName);
+            }
+        }
+    }
+
+    /**
+     * Returns the path in the document of a field of given class
+     *
+     * @param clazz     the reflected class
+     * @param fieldName the name of the field, fields in sections are separated by dots
+     *
+     * @return the path in the document
+     */
+    @SuppressWarnings("unchecked")
+    public String getPath(Class<? extends ReflectedDBObject> clazz, String fieldName)
+    {
+        SectionConverter converter = this.getConverterManager().getConverterByClass(SectionConverter.class);
+        StringBuilder path = new StringBuilder();
+        Class<?> current = clazz;
+        for (String name : fieldName.split("\\."))
+        {
+            if (!Section.class.isAssignableFrom(current))
+            {
+                throw new IllegalArgumentException(fieldName + " is not a field path in " + clazz.getName());
+            }
+            Field found = null;
+            for (Field field : converter.getReflectedFields((Class<? extends Section>)current))
+            {
+                if (field.getName().equals(name))
+                {
+                    found = field;
+                    break;
+                }
+            }
+            if (found == null)
+            {
+                throw new IllegalArgumentException("Unknown field " + fieldName + " in " + clazz.getName());
+            }
+            if (path.length() != 0)
+            {
+                path.append(SEPARATOR);
+            }
+            path.append(converter.getPathFor(found).asString(SEPARATOR).toLowerCase());
+            current = found.getType();
+        }
+        return path.toString();
+    }
+
+    /**
+     * Creates a query matching documents whose field has given value
+     * <p>The value is converted the same way it is saved
+     *
+     * @param clazz     the reflected class
+     * @param fieldName the name of the field, fields in sections are separated by dots
+     * @param value     the value
+     *
+     * @return the query
+     */
+    public DBObject query(Class<? extends ReflectedDBObject> clazz, String fieldName, Object value)
+    {
+        try
+        {
+            return new BasicDBObject(this.getPath(clazz, fieldName), this.convertNode(this.getConverterManager().convertToNode(value)));
+        }
+        catch (ConversionException ex)
+        {
+            throw new IllegalArgumentException("Could not convert the value to query for", ex);
+        }
+    }
+
+    /**
+     * Loads the given lazy fields of the reflected from the collection
+     *
+     * @param reflected  the reflected that got loaded before
+     * @param collection the collection containing the document of the reflected
+     * @param fieldNames the names of the fields to load
+     */
+    public void loadFields(ReflectedDBObject reflected, DBCollection collection, String... fieldNames)
+    {
+        Object id = reflected.getId();
+        if (id == null)
+        {
+            throw new IllegalStateException("Fields can only be loaded for a reflected that got loaded or saved with its _id");
+        }
+        Map<Field, String> fields = new LinkedHashMap<Field, String>();
+        SectionConverter converter = this.getConverterManager().getConverterByClass(SectionConverter.class);
+        for (String fieldName : fieldNames)
+        {
+            Field found = null;
+            for (Field field : converter.getReflectedFields(reflected.getClass()))
+            {
+                if (field.getName().equals(fieldName))
+                {
+                    found = field;
+                    break;
+                }
+            }
+            if (found == null)
+            {
+                throw new IllegalArgumentException("Unknown field " + fieldName + " in " + reflected.getClass().getName());
+            }
+            fields.put(found, converter.getPathFor(found).asString(SEPARATOR).toLowerCase());
+        }
+
+        DBObject projection = new BasicDBObject();
+        for (String path : fields.values())
+        {
+            projection.put(path, 1);
+        }
+        DBObject dbo = collection.findOne(new BasicDBObject("_id", id), projection);
+        if (dbo == null)
+        {
+            Reflector.LOGGER.warning("The document of the reflected does not exist anymore: " + id);
+            return;
+        }
+        MapNode snapshot = reflected.getSnapshot();
+        try
+        {
+            MapNode node = this.load(dbo, reflected);
+            ReflectedDBObject loaded = this.getReflector().create(reflected.getClass());
+            fillReflected(loaded, node);
+            for (Entry<Field, String> entry : fields.entrySet())
+            {
+                entry.getKey().set(reflected, entry.getKey().get(loaded));
+                Path path = new Path(SEPARATOR, entry.getValue());
+                Node loadedNode = node.get(path);
+                if (loadedNode != null && snapshot != null)
+                {
+                    snapshot.set(path, loadedNode);
+                }
+                reflected.getUnloaded().remove(entry.getValue());
+            }
+        }
+        catch (IllegalAccessException ex)
+        {
+            throw new IllegalStateException(ex); // the fields got converted just before
+        }
+        catch (ConversionException ex)
+        {
+            if (reflected.useStrictExceptionPolicy())
+            {
+                throw new CodecIOException("Could not load fields of reflected", ex);
+            }
+            Reflector.LOGGER.warning("Could not load fields of reflected" + ex);
+        }
+    }
+
+    /**
+     * Saves the reflected into a BSON document without creating a DBObject
+     *
+     * @param reflected the reflected to save
+     *
+     * @return the BSON document or null if the reflected could not be encoded
+     */
+    public byte[] encodeReflected(Reflected reflected)
+    {
+        try
+        {
+            MapNode node = this.convert(reflected);
+            if (reflected instanceof ReflectedDBObject)
+            {
+                this.trackId((ReflectedDBObject)reflected, node);
+            }
+            byte[] bson = new BsonNodeWriter().encode(node);
+            if (reflected instanceof ReflectedDBObject)
+            {
+                ((ReflectedDBObject)reflected).setSnapshot(node);
+            }
+            return bson;
+        }
+        catch (ConversionException ex)
+        {
+            if (reflected.useStrictExceptionPolicy())
+            {
+                throw new CodecIOException("Could not save reflected", ex);
+            }
+            Reflector.LOGGER.warning("Could not save reflected" + ex);
+            return null;
+        }
+    }
+
     @Override
     public void saveReflected(Reflected reflected, DBObject dbo)
     {
         try
         {
-            this.save(convertReflected(reflected), dbo, reflected);
+            MapNode node = this.convert(reflected);
+            if (reflected instanceof ReflectedDBObject)
+            {
+                this.trackId((ReflectedDBObject)reflected, node);
+            }
+            this.save(node, dbo, reflected);
+            if (reflected instanceof ReflectedDBObject)
+            {
+                ((ReflectedDBObject)reflected).setSnapshot(node);
+            }
         }
         catch (ConversionException ex)
         {
@@ -90,6 +593,151 @@ public class MongoDBCodec extends Codec<DBObject, DBObject>
         }
     }
 
+    /**
+     * Creates an update document containing only the changes since the reflected got loaded or saved
+     * <p>Changed values are set using dotted paths into nested sections and removed values are unset.
+     * Values of the document that are not part of the reflected are kept.
+     * Without a previous state all values but the _id are set.
+     * <p>The state compared against advances only when {@link ReflectedDBObject#applied()} is called after the
+     * update succeeded, so a failed update is contained in the next one again.
+     *
+     * @param reflected the reflected
+     *
+     * @return the update document, empty if nothing changed
+     */
+    public DBObject createUpdate(ReflectedDBObject reflected)
+    {
+        MapNode current = this.convert(reflected);
+        MapNode snapshot = reflected.getSnapshot();
+        DBObject set = new BasicDBObject();
+        DBObject unset = new BasicDBObject();
+        if (snapshot == null)
+        {
+            this.convertMapNode(set, current);
+            set.removeField("_id");
+        }
+        else
+        {
+            this.diff("", snapshot, current, set, unset);
+        }
+        reflected.setPendingSnapshot(current);
+
+        DBObject update = new BasicDBObject();
+        if (!set.keySet().isEmpty())
+        {
+            update.put("$set", set);
+        }
+        if (!unset.keySet().isEmpty())
+        {
+            update.put("$unset", unset);
+        }
+        return update;
+    }
+
+    private void diff(String prefix, MapNode previous, MapNode current, DBObject set, DBObject unset)
+    {
+        Map<String, Node> previousNodes = previous.getMappedNodes();
+        Map<String, Node> currentNodes = current.getMappedNodes();
+        for (Entry<String, Node> entry : currentNodes.entrySet())
+        {
+            Node node = entry.getValue();
+            if (node instanceof NullNode)
+            {
+                continue;
+            }
+            String path = prefix + entry.getKey();
+            Node previousNode = previousNodes.get(entry.getKey());
+            if (previousNode instanceof MapNode && node instanceof MapNode)
+            {
+                this.diff(path + ".", (MapNode)previousNode, (MapNode)node, set, unset);
+            }
+            else if (!isEqual(previousNode, node))
+            {
+                set.put(path, this.convertNode(node));
+            }
+        }
+        for (Entry<String, Node> entry : previousNodes.entrySet())
+        {
+            Node node = currentNodes.get(entry.getKey());
+            // keys missing on the top level are not part of the reflected like the _id
+            boolean removed = node instanceof NullNode || (node == null && prefix.length() != 0);
+            if (removed && !(entry.getValue() instanceof NullNode))
+            {
+                unset.put(prefix + entry.getKey(), "");
+            }
+        }
+    }
+
+    private static boolean isEqual(Node a, Node b)
+    {
+        if (a == null || b == null)
+        {
+            return a == b;
+        }
+        if (a instanceof MapNode && b instanceof MapNode)
+        {
+            Map<String, Node> aNodes = ((MapNode)a).getMappedNodes();
+            Map<String, Node> bNodes = ((MapNode)b).getMappedNodes();
+            if (aNodes.size() != bNodes.size())
+            {
+                return false;
+            }
+            for (Entry<String, Node> entry : aNodes.entrySet())
+            {
+                if (!isEqual(entry.getValue(), bNodes.get(entry.getKey())))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof ListNode && b instanceof ListNode)
+        {
+            List<Node> aList = ((ListNode)a).getValue();
+            List<Node> bList = ((ListNode)b).getValue();
+            if (aList.size() != bList.size())
+            {
+                return false;
+            }
+            for (int i = 0; i < aList.size(); i++)
+            {
+                if (!isEqual(aList.get(i), bList.get(i)))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof MapNode || a instanceof ListNode || b instanceof MapNode || b instanceof ListNode)
+        {
+            return false;
+        }
+        Object aValue = normalize(a.getValue());
+        Object bValue = normalize(b.getValue());
+        return aValue == null ? bValue == null : aValue.equals(bValue);
+    }
+
+    /**
+     * Normalizes values the way they are stored in BSON
+     * <p>A float is read back as double, a byte or short as int and a char as string
+     */
+    private static Object normalize(Object value)
+    {
+        if (value instanceof Float || value instanceof Double)
+        {
+            return ((Number)value).doubleValue();
+        }
+        if (value instanceof Number)
+        {
+            return ((Number)value).longValue();
+        }
+        if (value instanceof Character)
+        {
+            return value.toString();
+        }
+        return value;
+    }
+
     @Override
     protected void save(MapNode mapNode, DBObject dbo, Reflected reflected) throws ConversionException
     {
@@ -135,14 +783,15 @@ public class MongoDBCodec extends Codec<DBObject, DBObject>
         }
     }
 
-    private List<Object> convertListNode(ListNode listNode)
+    private Object convertListNode(ListNode listNode)
     {
-        List<Object> list = new ArrayList<Object>();
-        if (listNode.isEmpty())
+        if (listNode instanceof BinaryNode)
         {
-            return list;
+            return ((BinaryNode)listNode).getBytes();
         }
-        for (Node node : listNode.getValue())
+        List<Node> nodes = listNode.getValue();
+        List<Object> list = new ArrayList<Object>();
+        for (Node node : nodes)
         {
             list.add(convertNode(node));
         }
@@ -193,6 +842,26 @@ public class MongoDBCodec extends Codec<DBObject, DBObject>
         {
             nodeValue = new DateNode((Date)value);
         }
+        else if (value instanceof String)
+        {
+            nodeValue = new StringNode((String)value);
+        }
+        else if (value instanceof Integer)
+        {
+            nodeValue = new IntNode((Integer)value);
+        }
+        else if (value instanceof Long)
+        {
+            nodeValue = new LongNode((Long)value);
+        }
+        else if (value instanceof Double)
+        {
+            nodeValue = new DoubleNode((Double)value);
+        }
+        else if (value instanceof Boolean)
+        {
+            nodeValue = BooleanNode.of((Boolean)value);
+        }
         else
         {
             nodeValue = getConverterManager().convertToNode(value);
@@ -209,4 +878,49 @@ public class MongoDBCodec extends Codec<DBObject, DBObject>
         }
         return listNode;
     }
+
+    private static final class Identity
+    {
+        private final String database;
+        private final String ref;
+        private final Object id;
+
+        private Identity(String database, String ref, Object id)
+        {
+            this.database = database;
+            this.ref = ref;
+            this.id = normalizeId(id);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Identity))
+            {
+                return false;
+            }
+            Identity identity = (Identity)o;
+            return equal(this.database, identity.database) && equal(this.ref, identity.ref) && equal(this.id, identity.id);
+        }
+
+        private static boolean equal(Object a, Object b)
+        {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * (31 * hash(this.database) + hash(this.ref)) + hash(this.id);
+        }
+
+        private static int hash(Object o)
+        {
+            return o == null ? 0 : o.hashCode();
+        }
+    }
 }
@@ -22,7 +22,18 @@
  */
 package de.cubeisland.engine.reflect.codec.mongo;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mongodb.DBRefBase;
 import de.cubeisland.engine.reflect.Reflector;
@@ -51,21 +62,114 @@ public class Reference<T extends ReflectedDBObject>
         this.object = object;
     }
 
+    /**
+     * Fetches the referenced document
+     * <p>The document is loaded without saving into it and shared with all References to it
+     *
+     * @param clazz the reflected class
+     *
+     * @return the reflected or null if the reference points to nothing
+     */
     public T fetch(Class<T> clazz)
     {
         if (fetched == null)
         {
-            DBObject fetch = this.dbRef.fetch();
-            if (fetch == null)
+            DBRefBase ref = this.getDBRef();
+            MongoDBCodec codec = this.getCodec();
+            this.fetched = codec.getIdentity(clazz, ref.getDB().getName(), ref.getRef(), ref.getId());
+            if (this.fetched == null)
             {
-                Reflector.LOGGER.warning("The DB Reference points to nothing: " + this.dbRef);
-                return null;
+                DBObject fetch = ref.fetch();
+                if (fetch == null)
+                {
+                    Reflector.LOGGER.warning("The DB Reference points to nothing: " + ref);
+                    return null;
+                }
+                this.fetched = codec.loadIdentity(clazz, ref.getDB().getName(), ref.getRef(), fetch);
             }
-            this.fetched = this.reflector.load(clazz, this.getDBRef().fetch());
         }
         return fetched;
     }
 
+    /**
+     * Fetches all given references using one query per referenced collection
+     *
+     * @param references the references to fetch
+     * @param clazz      the reflected class
+     *
+     * @return the fetched reflected in the order of the references, null for references pointing to nothing
+     */
+    public static <T extends ReflectedDBObject> List<T> fetchAll(Collection<Reference<T>> references, Class<T> clazz)
+    {
+        Map<String, List<Reference<T>>> byCollection = new LinkedHashMap<String, List<Reference<T>>>();
+        for (Reference<T> reference : references)
+        {
+            if (reference.fetched != null)
+            {
+                continue;
+            }
+            DBRefBase ref = reference.getDBRef();
+            reference.fetched = reference.getCodec().getIdentity(clazz, ref.getDB().getName(), ref.getRef(), ref.getId());
+            if (reference.fetched == null)
+            {
+                String key = ref.getDB().getName() + "." + ref.getRef();
+                List<Reference<T>> list = byCollection.get(key);
+                if (list == null)
+                {
+                    list = new ArrayList<Reference<T>>();
+                    byCollection.put(key, list);
+                }
+                list.add(reference);
+            }
+        }
+
+        for (List<Reference<T>> list : byCollection.values())
+        {
+            DBRefBase first = list.get(0).getDBRef();
+            Set<Object> ids = new HashSet<Object>();
+            for (Reference<T> reference : list)
+            {
+                ids.add(reference.getDBRef().getId());
+            }
+            DBCollection target = first.getDB().getCollection(first.getRef());
+            DBCursor cursor = target.find(new BasicDBObject("_id", new BasicDBObject("$in", ids)));
+            Map<Object, T> loaded = new HashMap<Object, T>();
+            try
+            {
+                MongoDBCodec codec = list.get(0).getCodec();
+                for (DBObject dbo : cursor)
+                {
+                    T reflected = codec.loadIdentity(clazz, first.getDB().getName(), first.getRef(), dbo);
+                    loaded.put(MongoDBCodec.normalizeId(dbo.get("_id")), reflected);
+                }
+            }
+            finally
+            {
+                cursor.close();
+            }
+            for (Reference<T> reference : list)
+            {
+                reference.fetched = loaded.get(MongoDBCodec.normalizeId(reference.getDBRef().getId()));
+                if (reference.fetched == null)
+                {
+                    Reflector.LOGGER.warning("The DB Reference points to nothing: " + reference.getDBRef());
+                }
+            }
+        }
+
+        List<T> result = new ArrayList<T>(references.size());
+        for (Reference<T> reference : references)
+        {
+            result.add(reference.fetched);
+        }
+        return result;
+    }
+
+    private MongoDBCodec getCodec()
+    {
+        return this.reflector.getCodecManager().getCodec(MongoDBCodec.class);
+    }
+
     @Override
     public boolean equals(Object obj)
     {
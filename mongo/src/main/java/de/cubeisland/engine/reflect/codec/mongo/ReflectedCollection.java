@@ -0,0 +1,340 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.ParallelConversion;
+import de.cubeisland.engine.converter.ParallelConversion.Task;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.reflect.Reflector;
+import org.bson.types.ObjectId;
+
+import static de.cubeisland.engine.reflect.annotations.Name.SEPARATOR;
+
+/**
+ * Saves and loads many {@link ReflectedDBObject} of one class into/from a {@link DBCollection}
+ * <p>Documents are written in unordered bulk operations of at most {@link #getBatchSize()} documents.
+ * Documents with an <code>_id</code> replace the stored document, all others are inserted.
+ * Documents with lazy fields that did not get loaded only update their loaded fields.
+ */
+public class ReflectedCollection<T extends ReflectedDBObject>
+{
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final String ID = "_id";
+
+    private final Reflector reflector;
+    private final Class<T> clazz;
+    private final DBCollection collection;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    public ReflectedCollection(Reflector reflector, Class<T> clazz, DBCollection collection)
+    {
+        this.reflector = reflector;
+        this.clazz = clazz;
+        this.collection = collection;
+    }
+
+    /**
+     * Sets the maximum amount of documents per bulk operation and cursor batch
+     *
+     * @param batchSize the batch size
+     *
+     * @return fluent interface
+     */
+    public ReflectedCollection<T> setBatchSize(int batchSize)
+    {
+        if (batchSize <= 0)
+        {
+            throw new IllegalArgumentException("The batch size has to be positive!");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public DBCollection getCollection()
+    {
+        return collection;
+    }
+
+    /**
+     * Converts all given reflected and writes them in bulk operations
+     * <p>Reflected without an _id get a new ObjectId before they are inserted, so saving them again replaces
+     * their document. The conversion runs in parallel if the codec's ConverterManager has a ParallelConversion.
+     *
+     * @param reflected the reflected to save
+     *
+     * @return the amount of written documents
+     */
+    public int saveAll(Collection<? extends T> reflected)
+    {
+        List<T> list = new ArrayList<T>(reflected);
+        int written = 0;
+        for (int start = 0; start < list.size(); start += this.batchSize)
+        {
+            written += this.saveBatch(list.subList(start, Math.min(list.size(), start + this.batchSize)));
+        }
+        return written;
+    }
+
+    /**
+     * Converts and writes one batch in a single bulk operation
+     * <p>If the bulk operation fails the previous snapshots are restored, so no change gets lost for
+     * {@link ReflectedDBObject#createUpdate()}.
+     */
+    private int saveBatch(final List<T> batch)
+    {
+        MapNode[] snapshots = new MapNode[batch.size()];
+        for (int i = 0; i < snapshots.length; i++)
+        {
+            snapshots[i] = batch.get(i).getSnapshot();
+        }
+        final boolean[] inserts = new boolean[batch.size()];
+        Object[] documents = this.convert(batch.size(), new Task()
+        {
+            public Object convert(int index)
+            {
+                T object = batch.get(index);
+                ObjectId generated = null;
+                if (object.getId() == null)
+                {
+                    generated = new ObjectId();
+                    object.setId(generated);
+                }
+                DBObject dbo = new BasicDBObject();
+                object.save(dbo);
+                // a field mapped to _id takes precedence over the generated one
+                inserts[index] = generated != null && generated.equals(dbo.get(ID));
+                return dbo;
+            }
+        });
+        BulkWriteOperation bulk = this.collection.initializeUnorderedBulkOperation();
+        for (int i = 0; i < documents.length; i++)
+        {
+            DBObject dbo = (DBObject)documents[i];
+            if (inserts[i])
+            {
+                bulk.insert(dbo);
+            }
+            else if (batch.get(i).getUnloaded().isEmpty())
+            {
+                bulk.find(new BasicDBObject(ID, dbo.get(ID))).upsert().replaceOne(dbo);
+            }
+            else
+            {
+                // replacing would remove the stored values of the unloaded lazy fields
+                DBObject fields = new BasicDBObject();
+                this.collectFields(dbo, "", batch.get(i).getUnloaded(), fields);
+                fields.removeField(ID);
+                bulk.find(new BasicDBObject(ID, dbo.get(ID))).upsert().updateOne(new BasicDBObject("$set", fields));
+            }
+        }
+        try
+        {
+            bulk.execute();
+        }
+        catch (RuntimeException e)
+        {
+            for (int i = 0; i < snapshots.length; i++)
+            {
+                batch.get(i).setSnapshot(snapshots[i]);
+            }
+            throw e;
+        }
+        return documents.length;
+    }
+
+    /**
+     * Collects the fields of the document by their path descending into documents containing unloaded paths
+     */
+    private void collectFields(DBObject dbo, String prefix, Set<String> unloaded, DBObject fields)
+    {
+        for (String key : dbo.keySet())
+        {
+            String path = prefix + key;
+            Object value = dbo.get(key);
+            if (value instanceof DBObject && !(value instanceof List) && containsPrefix(unloaded, path + SEPARATOR))
+            {
+                this.collectFields((DBObject)value, path + SEPARATOR, unloaded, fields);
+            }
+            else
+            {
+                fields.put(path, value);
+            }
+        }
+    }
+
+    private static boolean containsPrefix(Set<String> paths, String prefix)
+    {
+        for (String path : paths)
+        {
+            if (path.startsWith(prefix))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object[] convert(int size, Task task)
+    {
+        try
+        {
+            return ParallelConversion.convert(this.getCodec().getConverterManager(), size, task);
+        }
+        catch (ConversionException ex)
+        {
+            throw new IllegalStateException(ex); // saving reports failures itself
+        }
+    }
+
+    /**
+     * Writes the changes of the reflected since it got loaded or saved into its document
+     * <p>The reflected only takes the new state as its base for the next update if the update succeeded.
+     *
+     * @param reflected the reflected, it must know its _id
+     *
+     * @return false if nothing changed
+     *
+     * @see ReflectedDBObject#createUpdate()
+     */
+    public boolean update(T reflected)
+    {
+        if (reflected.getId() == null)
+        {
+            throw new IllegalArgumentException("Only a reflected with an _id can be updated");
+        }
+        DBObject update = reflected.createUpdate();
+        if (!update.keySet().isEmpty())
+        {
+            this.collection.update(new BasicDBObject(ID, reflected.getId()), update);
+        }
+        reflected.applied();
+        return !update.keySet().isEmpty();
+    }
+
+    /**
+     * Loads all documents matching the query leaving out lazy fields
+     *
+     * @param query the query
+     *
+     * @return the loaded reflected
+     */
+    public List<T> loadAll(DBObject query)
+    {
+        return this.loadAll(this.collection.find(query, this.getCodec().getProjection(this.clazz)));
+    }
+
+    /**
+     * Loads all documents whose field has given value leaving out lazy fields
+     *
+     * @param fieldName the name of the field, fields in sections are separated by dots
+     * @param value     the value
+     *
+     * @return the loaded reflected
+     */
+    public List<T> loadBy(String fieldName, Object value)
+    {
+        return this.loadAll(this.getCodec().query(this.clazz, fieldName, value));
+    }
+
+    /**
+     * Loads the first document whose field has given value leaving out lazy fields
+     *
+     * @param fieldName the name of the field, fields in sections are separated by dots
+     * @param value     the value
+     *
+     * @return the loaded reflected or null if no document matches
+     */
+    public T loadOneBy(String fieldName, Object value)
+    {
+        MongoDBCodec codec = this.getCodec();
+        DBObject dbo = this.collection.findOne(codec.query(this.clazz, fieldName, value), codec.getProjection(this.clazz));
+        if (dbo == null)
+        {
+            return null;
+        }
+        T reflected = this.reflector.create(this.clazz);
+        reflected.loadFrom(dbo);
+        return reflected;
+    }
+
+    /**
+     * Creates the indexes declared in the reflected class
+     *
+     * @return fluent interface
+     *
+     * @see MongoDBCodec#ensureIndexes(Class, DBCollection)
+     */
+    public ReflectedCollection<T> ensureIndexes()
+    {
+        this.getCodec().ensureIndexes(this.clazz, this.collection);
+        return this;
+    }
+
+    private MongoDBCodec getCodec()
+    {
+        return this.reflector.getCodecManager().getCodec(MongoDBCodec.class);
+    }
+
+    /**
+     * Loads all documents of the cursor and closes it
+     *
+     * @param cursor the cursor
+     *
+     * @return the loaded reflected
+     */
+    public List<T> loadAll(DBCursor cursor)
+    {
+        List<T> result = new ArrayList<T>();
+        try
+        {
+            cursor.batchSize(this.batchSize);
+            for (DBObject dbo : cursor)
+            {
+                T reflected = this.reflector.create(this.clazz);
+                reflected.loadFrom(dbo);
+                result.add(reflected);
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+        return result;
+    }
+}
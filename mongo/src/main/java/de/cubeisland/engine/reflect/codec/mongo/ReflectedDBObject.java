@@ -22,11 +22,33 @@
  */
 package de.cubeisland.engine.reflect.codec.mongo;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
+import de.cubeisland.engine.converter.node.MapNode;
 import de.cubeisland.engine.reflect.Reflected;
 
 public class ReflectedDBObject extends Reflected<MongoDBCodec, DBObject>
 {
+    /**
+     * The _id of the document this got loaded from or saved into
+     */
+    private transient Object id;
+    /**
+     * The state of the document when last loaded or saved
+     */
+    private transient MapNode snapshot;
+    /**
+     * The state of the last created update until it got applied
+     */
+    private transient MapNode pendingSnapshot;
+    /**
+     * The paths of lazy fields that did not get loaded yet
+     */
+    private transient Set<String> unloaded = new HashSet<String>();
+
     @Override
     public void save(DBObject dbo)
     {
@@ -39,4 +61,84 @@ public class ReflectedDBObject extends Reflected<MongoDBCodec, DBObject>
         this.getCodec().loadReflected(this, dbo);
         return true;
     }
+
+    /**
+     * Creates an update document containing only the changes since this got loaded or saved
+     *
+     * @return the update document
+     *
+     * @see MongoDBCodec#createUpdate(ReflectedDBObject)
+     */
+    public DBObject createUpdate()
+    {
+        return this.getCodec().createUpdate(this);
+    }
+
+    /**
+     * Marks the last update created by {@link #createUpdate()} as applied to the document
+     * <p>Call this after the update succeeded. Until then the next update still contains its changes.
+     */
+    public final void applied()
+    {
+        if (this.pendingSnapshot != null)
+        {
+            this.snapshot = this.pendingSnapshot;
+            this.pendingSnapshot = null;
+        }
+    }
+
+    /**
+     * Loads lazy fields that got excluded by the projection
+     *
+     * @param collection the collection containing the document
+     * @param fieldNames the names of the fields to load
+     *
+     * @see MongoDBCodec#loadFields(ReflectedDBObject, DBCollection, String...)
+     */
+    public void loadFields(DBCollection collection, String... fieldNames)
+    {
+        this.getCodec().loadFields(this, collection, fieldNames);
+    }
+
+    /**
+     * Returns the _id of the document this got loaded from or saved into
+     * <p>The _id is written into saved documents even if the reflected has no field for it
+     *
+     * @return the _id or null if not known yet
+     */
+    public final Object getId()
+    {
+        return id;
+    }
+
+    final void setId(Object id)
+    {
+        this.id = id;
+    }
+
+    final MapNode getSnapshot()
+    {
+        return snapshot;
+    }
+
+    final void setSnapshot(MapNode snapshot)
+    {
+        this.snapshot = snapshot;
+        this.pendingSnapshot = null;
+    }
+
+    final void setPendingSnapshot(MapNode pendingSnapshot)
+    {
+        this.pendingSnapshot = pendingSnapshot;
+    }
+
+    final Set<String> getUnloaded()
+    {
+        return unloaded;
+    }
+
+    final void setUnloaded(Set<String> unloaded)
+    {
+        this.unloaded = unloaded;
+    }
 }
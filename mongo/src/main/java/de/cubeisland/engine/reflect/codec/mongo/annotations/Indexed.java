@@ -0,0 +1,64 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation marks a field of a {@link de.cubeisland.engine.reflect.codec.mongo.ReflectedDBObject} or of its sections
+ * to be indexed
+ * <p>Fields with the same index name form a compound index in the order they are declared in.
+ *
+ * @see de.cubeisland.engine.reflect.codec.mongo.MongoDBCodec#ensureIndexes(Class, com.mongodb.DBCollection)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+@Documented
+public @interface Indexed
+{
+    /**
+     * The sort order of the field in the index: 1 for ascending, -1 for descending
+     *
+     * @return the order
+     */
+    public int order() default 1;
+
+    /**
+     * Whether the values in the index have to be unique
+     * <p>A compound index is unique if any of its fields is marked unique
+     *
+     * @return true if unique
+     */
+    public boolean unique() default false;
+
+    /**
+     * The name of the index, defaults to a single field index named after the path
+     *
+     * @return the name
+     */
+    public String name() default "";
+}
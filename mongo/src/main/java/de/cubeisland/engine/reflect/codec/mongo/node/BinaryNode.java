@@ -0,0 +1,59 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo.node;
+
+import de.cubeisland.engine.converter.node.ByteNode;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.Node;
+
+/**
+ * A byte array stored as BSON binary
+ * <p>It is a ListNode of ByteNodes so it compares like the list other codecs get for a byte array.
+ * Lists of bytes that are not a byte array stay plain ListNodes and are stored as arrays.
+ */
+public class BinaryNode extends ListNode
+{
+    public BinaryNode(byte[] bytes)
+    {
+        for (byte b : bytes)
+        {
+            this.addNode(new ByteNode(b));
+        }
+    }
+
+    /**
+     * Returns the bytes of this node
+     *
+     * @return a new byte array
+     */
+    public byte[] getBytes()
+    {
+        byte[] bytes = new byte[this.getValue().size()];
+        int i = 0;
+        for (Node node : this.getValue())
+        {
+            bytes[i++] = ((ByteNode)node).getValue();
+        }
+        return bytes;
+    }
+}
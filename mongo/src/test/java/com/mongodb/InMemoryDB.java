@@ -0,0 +1,104 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mongodb;
+
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A DB keeping its collections in memory
+ * <p>The driver needs a Mongo instance for its options only. It is shared by all InMemoryDBs and never used to
+ * send a request.
+ */
+public class InMemoryDB extends DB
+{
+    private static Mongo mongo;
+
+    private final Map<String, InMemoryDBCollection> collections = new HashMap<String, InMemoryDBCollection>();
+
+    public InMemoryDB(String name)
+    {
+        super(mongo(), name);
+    }
+
+    private static synchronized Mongo mongo()
+    {
+        if (mongo == null)
+        {
+            try
+            {
+                mongo = new Mongo(new ServerAddress("localhost"));
+            }
+            catch (UnknownHostException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+        return mongo;
+    }
+
+    @Override
+    public InMemoryDBCollection getCollection(String name)
+    {
+        return this.doGetCollection(name);
+    }
+
+    @Override
+    protected synchronized InMemoryDBCollection doGetCollection(String name)
+    {
+        InMemoryDBCollection collection = this.collections.get(name);
+        if (collection == null)
+        {
+            collection = new InMemoryDBCollection(this, name);
+            this.collections.put(name, collection);
+        }
+        return collection;
+    }
+
+    @Override
+    public void requestStart()
+    {
+    }
+
+    @Override
+    public void requestDone()
+    {
+    }
+
+    @Override
+    public void requestEnsureConnection()
+    {
+    }
+
+    @Override
+    public void cleanCursors(boolean force)
+    {
+    }
+
+    @Override
+    CommandResult doAuthenticate(MongoCredential credentials)
+    {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,560 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mongodb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.bson.types.ObjectId;
+
+/**
+ * A DBCollection keeping its documents in memory
+ * <p>Supported are inserts, replacements, $set and $unset updates, removals, equality and $in queries on
+ * dotted paths, inclusion and exclusion projections and bulk operations. Numbers are compared by value like
+ * the server does. All operations are counted so tests can verify how the collection got used.
+ */
+public class InMemoryDBCollection extends DBCollection
+{
+    private static final String ID = "_id";
+
+    private final Map<Object, DBObject> documents = new LinkedHashMap<Object, DBObject>();
+    private final List<DBObject> indexes = new ArrayList<DBObject>();
+    private int bulkOperations = 0;
+    private int queries = 0;
+    private int indexCreations = 0;
+    private int failingIndexCreations = 0;
+    private int failingBulkOperations = 0;
+    private int failingUpdates = 0;
+
+    InMemoryDBCollection(DB db, String name)
+    {
+        super(db, name);
+    }
+
+    /**
+     * Returns copies of all stored documents in insertion order
+     */
+    public synchronized List<DBObject> getDocuments()
+    {
+        List<DBObject> list = new ArrayList<DBObject>();
+        for (DBObject dbo : this.documents.values())
+        {
+            list.add(copy(dbo));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the keys of all created indexes
+     */
+    public synchronized List<DBObject> getIndexes()
+    {
+        return new ArrayList<DBObject>(this.indexes);
+    }
+
+    public synchronized int getBulkOperations()
+    {
+        return this.bulkOperations;
+    }
+
+    public synchronized int getQueries()
+    {
+        return this.queries;
+    }
+
+    public synchronized int getIndexCreations()
+    {
+        return this.indexCreations;
+    }
+
+    /**
+     * Makes the next index creations fail
+     *
+     * @param count the amount of failing index creations
+     */
+    public synchronized void failIndexCreations(int count)
+    {
+        this.failingIndexCreations = count;
+    }
+
+    /**
+     * Makes the next bulk operations fail without writing anything
+     *
+     * @param count the amount of failing bulk operations
+     */
+    public synchronized void failBulkOperations(int count)
+    {
+        this.failingBulkOperations = count;
+    }
+
+    /**
+     * Makes the next updates fail without writing anything
+     *
+     * @param count the amount of failing updates
+     */
+    public synchronized void failUpdates(int count)
+    {
+        this.failingUpdates = count;
+    }
+
+    @Override
+    public synchronized WriteResult insert(List<DBObject> list, WriteConcern concern, DBEncoder encoder)
+    {
+        for (DBObject dbo : list)
+        {
+            this.doInsert(dbo);
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized WriteResult update(DBObject q, DBObject o, boolean upsert, boolean multi, WriteConcern concern, DBEncoder encoder)
+    {
+        if (this.failingUpdates > 0)
+        {
+            this.failingUpdates--;
+            throw new MongoException("Update failed");
+        }
+        this.doUpdate(q, o, upsert, multi);
+        return null;
+    }
+
+    @Override
+    protected void doapply(DBObject o)
+    {
+        if (o.get(ID) == null)
+        {
+            o.put(ID, new ObjectId());
+        }
+    }
+
+    @Override
+    public synchronized WriteResult remove(DBObject o, WriteConcern concern, DBEncoder encoder)
+    {
+        for (DBObject dbo : this.matching(o))
+        {
+            this.documents.remove(key(dbo.get(ID)));
+        }
+        return null;
+    }
+
+    @Override
+    QueryResultIterator find(DBObject ref, DBObject fields, int numToSkip, int batchSize, int limit, int options, ReadPreference readPref, DBDecoder decoder)
+    {
+        throw new UnsupportedOperationException("Queries are answered by find and findOne directly");
+    }
+
+    @Override
+    QueryResultIterator find(DBObject ref, DBObject fields, int numToSkip, int batchSize, int limit, int options, ReadPreference readPref, DBDecoder decoder, DBEncoder encoder)
+    {
+        throw new UnsupportedOperationException("Queries are answered by find and findOne directly");
+    }
+
+    @Override
+    public DBCursor find()
+    {
+        return this.find(new BasicDBObject(), null);
+    }
+
+    @Override
+    public DBCursor find(DBObject ref)
+    {
+        return this.find(ref, null);
+    }
+
+    @Override
+    public synchronized DBCursor find(DBObject ref, DBObject keys)
+    {
+        this.queries++;
+        List<DBObject> results = new ArrayList<DBObject>();
+        for (DBObject dbo : this.matching(ref))
+        {
+            results.add(project(dbo, keys));
+        }
+        return new InMemoryCursor(this, ref, keys, results);
+    }
+
+    @Override
+    synchronized DBObject findOne(DBObject o, DBObject fields, DBObject orderBy, ReadPreference readPref, long maxTime, java.util.concurrent.TimeUnit maxTimeUnit)
+    {
+        this.queries++;
+        List<DBObject> matching = this.matching(o == null ? new BasicDBObject() : o);
+        return matching.isEmpty() ? null : project(matching.get(0), fields);
+    }
+
+    @Override
+    public synchronized void createIndex(DBObject keys, DBObject options, DBEncoder encoder)
+    {
+        this.indexCreations++;
+        if (this.failingIndexCreations > 0)
+        {
+            this.failingIndexCreations--;
+            throw new MongoException("Index creation failed");
+        }
+        if (!this.indexes.contains(keys))
+        {
+            this.indexes.add(copy(keys));
+        }
+    }
+
+    @Override
+    public Cursor aggregate(List<DBObject> pipeline, AggregationOptions options, ReadPreference readPreference)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Cursor> parallelScan(ParallelScanOptions options)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    synchronized BulkWriteResult executeBulkWriteOperation(boolean ordered, List<WriteRequest> requests, WriteConcern writeConcern, DBEncoder encoder)
+    {
+        this.bulkOperations++;
+        if (this.failingBulkOperations > 0)
+        {
+            this.failingBulkOperations--;
+            throw new MongoException("Bulk operation failed");
+        }
+        int inserted = 0;
+        int matched = 0;
+        int removed = 0;
+        for (WriteRequest request : requests)
+        {
+            switch (request.getType())
+            {
+                case INSERT:
+                    this.doInsert(((InsertRequest)request).getDocument());
+                    inserted++;
+                    break;
+                case UPDATE:
+                case REPLACE:
+                    ModifyRequest modify = (ModifyRequest)request;
+                    matched += this.doUpdate(modify.getQuery(), modify.getUpdateDocument(), modify.isUpsert(), modify.isMulti());
+                    break;
+                case REMOVE:
+                    RemoveRequest remove = (RemoveRequest)request;
+                    for (DBObject dbo : this.matching(remove.getQuery()))
+                    {
+                        this.documents.remove(key(dbo.get(ID)));
+                        removed++;
+                        if (!remove.isMulti())
+                        {
+                            break;
+                        }
+                    }
+                    break;
+            }
+        }
+        return new AcknowledgedBulkWriteResult(inserted, matched, removed, matched, Collections.<BulkWriteUpsert>emptyList());
+    }
+
+    private void doInsert(DBObject dbo)
+    {
+        this.doapply(dbo);
+        Object key = key(dbo.get(ID));
+        if (this.documents.containsKey(key))
+        {
+            throw new MongoException(11000, "Duplicate key: " + dbo.get(ID));
+        }
+        this.documents.put(key, copy(dbo));
+    }
+
+    private int doUpdate(DBObject query, DBObject update, boolean upsert, boolean multi)
+    {
+        List<DBObject> matching = this.matching(query);
+        if (matching.isEmpty())
+        {
+            if (upsert)
+            {
+                DBObject dbo = new BasicDBObject();
+                if (query.get(ID) != null && !(query.get(ID) instanceof DBObject))
+                {
+                    dbo.put(ID, query.get(ID));
+                }
+                this.doInsert(modify(dbo, update));
+            }
+            return 0;
+        }
+        if (!multi)
+        {
+            matching = matching.subList(0, 1);
+        }
+        for (DBObject dbo : matching)
+        {
+            this.documents.put(key(dbo.get(ID)), modify(dbo, update));
+        }
+        return matching.size();
+    }
+
+    /**
+     * Applies $set and $unset or replaces the document keeping its _id
+     */
+    private static DBObject modify(DBObject dbo, DBObject update)
+    {
+        boolean operators = false;
+        for (String key : update.keySet())
+        {
+            operators |= key.startsWith("$");
+        }
+        if (!operators)
+        {
+            DBObject replaced = copy(update);
+            if (dbo.get(ID) != null)
+            {
+                replaced.put(ID, dbo.get(ID));
+            }
+            return replaced;
+        }
+        DBObject modified = copy(dbo);
+        for (String operator : update.keySet())
+        {
+            DBObject fields = (DBObject)update.get(operator);
+            for (String path : fields.keySet())
+            {
+                if ("$set".equals(operator))
+                {
+                    set(modified, path, copy(fields.get(path)));
+                }
+                else if ("$unset".equals(operator))
+                {
+                    unset(modified, path);
+                }
+                else
+                {
+                    throw new UnsupportedOperationException(operator);
+                }
+            }
+        }
+        return modified;
+    }
+
+    private List<DBObject> matching(DBObject query)
+    {
+        List<DBObject> list = new ArrayList<DBObject>();
+        for (DBObject dbo : this.documents.values())
+        {
+            if (matches(dbo, query))
+            {
+                list.add(dbo);
+            }
+        }
+        return list;
+    }
+
+    private static boolean matches(DBObject dbo, DBObject query)
+    {
+        for (String path : query.keySet())
+        {
+            Object expected = query.get(path);
+            Object actual = get(dbo, path);
+            if (expected instanceof DBObject && ((DBObject)expected).containsField("$in"))
+            {
+                boolean found = false;
+                for (Object candidate : (Iterable<?>)((DBObject)expected).get("$in"))
+                {
+                    found |= isEqual(actual, candidate);
+                }
+                if (!found)
+                {
+                    return false;
+                }
+            }
+            else if (!isEqual(actual, expected))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEqual(Object a, Object b)
+    {
+        if (a instanceof Number && b instanceof Number)
+        {
+            return key(a).equals(key(b));
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Normalizes numbers so ids match by value
+     */
+    private static Object key(Object id)
+    {
+        if (id instanceof Number)
+        {
+            Number number = (Number)id;
+            if (number.doubleValue() == number.longValue())
+            {
+                return number.longValue();
+            }
+            return number.doubleValue();
+        }
+        return id;
+    }
+
+    private static DBObject project(DBObject dbo, DBObject fields)
+    {
+        if (fields == null || fields.keySet().isEmpty())
+        {
+            return copy(dbo);
+        }
+        boolean inclusion = false;
+        for (String path : fields.keySet())
+        {
+            inclusion |= ((Number)fields.get(path)).intValue() != 0;
+        }
+        if (!inclusion)
+        {
+            DBObject projected = copy(dbo);
+            for (String path : fields.keySet())
+            {
+                unset(projected, path);
+            }
+            return projected;
+        }
+        DBObject projected = new BasicDBObject(ID, dbo.get(ID));
+        for (String path : fields.keySet())
+        {
+            Object value = get(dbo, path);
+            if (value != null)
+            {
+                set(projected, path, copy(value));
+            }
+        }
+        return projected;
+    }
+
+    private static Object get(DBObject dbo, String path)
+    {
+        Object current = dbo;
+        for (String key : path.split("\\."))
+        {
+            if (!(current instanceof DBObject))
+            {
+                return null;
+            }
+            current = ((DBObject)current).get(key);
+        }
+        return current;
+    }
+
+    private static void set(DBObject dbo, String path, Object value)
+    {
+        String[] keys = path.split("\\.");
+        DBObject current = dbo;
+        for (int i = 0; i < keys.length - 1; i++)
+        {
+            Object next = current.get(keys[i]);
+            if (!(next instanceof DBObject))
+            {
+                next = new BasicDBObject();
+                current.put(keys[i], next);
+            }
+            current = (DBObject)next;
+        }
+        current.put(keys[keys.length - 1], value);
+    }
+
+    private static void unset(DBObject dbo, String path)
+    {
+        int index = path.lastIndexOf('.');
+        Object parent = index == -1 ? dbo : get(dbo, path.substring(0, index));
+        if (parent instanceof DBObject)
+        {
+            ((DBObject)parent).removeField(path.substring(index + 1));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(T value)
+    {
+        if (value instanceof List)
+        {
+            List<Object> list = new ArrayList<Object>();
+            for (Object element : (List<?>)value)
+            {
+                list.add(copy(element));
+            }
+            return (T)list;
+        }
+        if (value instanceof DBObject)
+        {
+            BasicDBObject copy = new BasicDBObject();
+            for (Entry<String, Object> entry : ((Map<String, Object>)((DBObject)value).toMap()).entrySet())
+            {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return (T)copy;
+        }
+        return value;
+    }
+
+    private static final class InMemoryCursor extends DBCursor
+    {
+        private final Iterator<DBObject> results;
+
+        private InMemoryCursor(DBCollection collection, DBObject query, DBObject fields, List<DBObject> results)
+        {
+            super(collection, query, fields, ReadPreference.primary());
+            this.results = results.iterator();
+        }
+
+        @Override
+        public Iterator<DBObject> iterator()
+        {
+            return this;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.results.hasNext();
+        }
+
+        @Override
+        public DBObject next()
+        {
+            return this.results.next();
+        }
+
+        @Override
+        public DBCursor batchSize(int n)
+        {
+            return this;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.InMemoryDB;
+import de.cubeisland.engine.converter.node.ByteNode;
+import de.cubeisland.engine.converter.node.IntNode;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.NullNode;
+import de.cubeisland.engine.converter.node.StringNode;
+import de.cubeisland.engine.reflect.Reflector;
+import de.cubeisland.engine.reflect.Section;
+import de.cubeisland.engine.reflect.codec.mongo.node.BinaryNode;
+import org.bson.BasicBSONDecoder;
+import org.bson.BasicBSONEncoder;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BsonNodeWriterTest
+{
+    private Reflector reflector;
+    private MongoDBCodec codec;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        codec = reflector.getCodecManager().getCodec(MongoDBCodec.class);
+    }
+
+    private Sample createSample()
+    {
+        Sample sample = reflector.create(Sample.class);
+        sample.string = "text äöü";
+        sample.integer = -42;
+        sample.longValue = Long.MAX_VALUE;
+        sample.doubleValue = 0.1;
+        sample.floatValue = 0.1f;
+        sample.shortValue = 7;
+        sample.byteValue = -3;
+        sample.bool = true;
+        sample.date = new Date(1234567890L);
+        sample.data = new byte[]{1, -2, 3, 127};
+        sample.numbers = Arrays.asList(1, 2, 3);
+        sample.map.put("a", "b");
+        sample.section.name = "nested";
+        return sample;
+    }
+
+    @Test
+    public void testSameBytesAsDriver() throws Exception
+    {
+        Sample sample = createSample();
+        DBObject dbo = new BasicDBObject();
+        sample.save(dbo);
+        byte[] bson = codec.encodeReflected(sample);
+        assertArrayEquals(new BasicBSONEncoder().encode(dbo), bson);
+        // the byte array is written as binary, not as an array of int32
+        assertArrayEquals(sample.data, (byte[])new BasicBSONDecoder().readObject(bson).get("data"));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception
+    {
+        Sample sample = createSample();
+        Sample loaded = reflector.create(Sample.class);
+        codec.decodeReflected(loaded, codec.encodeReflected(sample), new InMemoryDB("test"));
+        assertArrayEquals(sample.data, loaded.data);
+        assertEquals(sample.numbers, loaded.numbers);
+        // the byte list is neither changed after encoding nor after decoding
+        assertTrue(sample.createUpdate().keySet().isEmpty());
+        assertTrue(loaded.createUpdate().keySet().isEmpty());
+    }
+
+    @Test
+    public void testNullNodes() throws Exception
+    {
+        MapNode node = MapNode.emptyMap();
+        node.set("present", new StringNode("value"));
+        node.set("absent", NullNode.emptyNode());
+        ListNode list = ListNode.emptyList();
+        list.addNode(new IntNode(1));
+        list.addNode(NullNode.emptyNode());
+        list.addNode(new IntNode(3));
+        node.set("list", list);
+
+        MapNode decoded = new BsonNodeReader(new BsonNodeWriter().encode(node), null).decode();
+        assertFalse(decoded.getMappedNodes().containsKey("absent"));
+        List<Node> values = ((ListNode)decoded.get("list")).getValue();
+        assertEquals(3, values.size());
+        assertTrue(values.get(1) instanceof NullNode);
+        // a second round trip keeps the same bytes
+        assertArrayEquals(new BsonNodeWriter().encode(decoded), new BsonNodeWriter().encode(
+            new BsonNodeReader(new BsonNodeWriter().encode(decoded), null).decode()));
+    }
+
+    @Test
+    public void testByteLists() throws Exception
+    {
+        MapNode node = MapNode.emptyMap();
+        node.set("empty", ListNode.emptyList());
+        ListNode bytes = ListNode.emptyList();
+        bytes.addNode(new ByteNode((byte)1));
+        node.set("bytes", bytes);
+        node.set("binary", new BinaryNode(new byte[]{1, 2}));
+        MapNode decoded = new BsonNodeReader(new BsonNodeWriter().encode(node), null).decode();
+        assertTrue(((ListNode)decoded.get("empty")).isEmpty());
+        // only byte arrays are binary, other lists of bytes stay arrays
+        assertFalse(decoded.get("bytes") instanceof BinaryNode);
+        assertEquals(1, ((ListNode)decoded.get("bytes")).getValue().get(0).getValue());
+        assertArrayEquals(new byte[]{1, 2}, ((BinaryNode)decoded.get("binary")).getBytes());
+    }
+
+    @Test
+    public void testByteListStaysArray() throws Exception
+    {
+        Sample sample = createSample();
+        sample.byteList = Arrays.asList((byte)1, (byte)2);
+        DBObject dbo = new BasicDBObject();
+        sample.save(dbo);
+        assertTrue(dbo.get("byte-list") instanceof List);
+        assertTrue(dbo.get("data") instanceof byte[]);
+        assertTrue(new BasicBSONDecoder().readObject(codec.encodeReflected(sample)).get("byte-list") instanceof List);
+
+        Sample loaded = reflector.create(Sample.class);
+        loaded.loadFrom(dbo);
+        assertEquals(sample.byteList, loaded.byteList);
+        assertArrayEquals(sample.data, loaded.data);
+    }
+
+    @Test
+    public void testByteArrayStoredAsArray() throws Exception
+    {
+        // documents written before byte arrays were stored as binary
+        Sample sample = createSample();
+        DBObject dbo = new BasicDBObject();
+        sample.save(dbo);
+        dbo.put("data", Arrays.asList(1, -2, 3, 127));
+        Sample loaded = reflector.create(Sample.class);
+        loaded.loadFrom(dbo);
+        assertArrayEquals(sample.data, loaded.data);
+    }
+
+    public static class Sample extends ReflectedDBObject
+    {
+        public String string = "";
+        public int integer;
+        public long longValue;
+        public double doubleValue;
+        public float floatValue;
+        public short shortValue;
+        public byte byteValue;
+        public boolean bool;
+        public Date date = new Date(0);
+        public byte[] data = new byte[0];
+        public List<Integer> numbers = new ArrayList<Integer>();
+        public List<Byte> byteList = new ArrayList<Byte>();
+        public Map<String, String> map = new LinkedHashMap<String, String>();
+        public Nested section = new Nested();
+
+        public class Nested implements Section
+        {
+            public String name = "";
+        }
+    }
+}
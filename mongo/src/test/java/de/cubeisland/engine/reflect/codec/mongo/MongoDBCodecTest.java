@@ -0,0 +1,206 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo;
+
+import java.util.Arrays;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.InMemoryDB;
+import com.mongodb.InMemoryDBCollection;
+import com.mongodb.MongoException;
+import de.cubeisland.engine.reflect.Reflector;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MongoDBCodecTest
+{
+    private Reflector reflector;
+    private InMemoryDBCollection collection;
+    private ReflectedCollection<Person> persons;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        collection = new InMemoryDB("test").getCollection("persons");
+        persons = new ReflectedCollection<Person>(reflector, Person.class, collection);
+    }
+
+    private Person saveAndLoad()
+    {
+        Person person = Person.of(reflector, "person", 20);
+        person.tags.add("tag");
+        person.address.city = "city";
+        persons.saveAll(Arrays.asList(person));
+        return persons.loadOneBy("name", "person");
+    }
+
+    @Test
+    public void testUnchangedAfterSave() throws Exception
+    {
+        Person person = Person.of(reflector, "person", 20);
+        persons.saveAll(Arrays.asList(person));
+        assertTrue(person.createUpdate().keySet().isEmpty());
+    }
+
+    @Test
+    public void testUnchangedAfterLoad() throws Exception
+    {
+        // float and short fields are read back as double and int
+        Person loaded = saveAndLoad();
+        assertTrue(loaded.createUpdate().keySet().isEmpty());
+    }
+
+    @Test
+    public void testSingleChange() throws Exception
+    {
+        Person loaded = saveAndLoad();
+        loaded.address.city = "town";
+        DBObject update = loaded.createUpdate();
+        assertEquals(new BasicDBObject("$set", new BasicDBObject("address.city", "town")), update);
+    }
+
+    @Test
+    public void testSnapshotAdvancesWhenApplied() throws Exception
+    {
+        Person loaded = saveAndLoad();
+        loaded.age = 21;
+        DBObject update = loaded.createUpdate();
+        // not applied, so the change is part of the next update again
+        assertEquals(update, loaded.createUpdate());
+        loaded.applied();
+        assertTrue(loaded.createUpdate().keySet().isEmpty());
+    }
+
+    @Test
+    public void testUpdate() throws Exception
+    {
+        Person loaded = saveAndLoad();
+        assertFalse(persons.update(loaded));
+        loaded.age = 21;
+        loaded.tags.add("other");
+        assertTrue(persons.update(loaded));
+        assertFalse(persons.update(loaded));
+        Person reloaded = persons.loadOneBy("name", "person");
+        assertEquals(21, reloaded.age);
+        assertEquals(Arrays.asList("tag", "other"), reloaded.tags);
+    }
+
+    @Test
+    public void testFailedUpdate() throws Exception
+    {
+        Person loaded = saveAndLoad();
+        loaded.age = 21;
+        collection.failUpdates(1);
+        try
+        {
+            persons.update(loaded);
+            fail();
+        }
+        catch (MongoException expected)
+        {
+            // the change is kept for the next update
+        }
+        assertTrue(persons.update(loaded));
+        assertEquals(21, persons.loadOneBy("name", "person").age);
+    }
+
+    private Person saveWithBiography()
+    {
+        Person person = Person.of(reflector, "person", 20);
+        person.biography = "long text";
+        persons.saveAll(Arrays.asList(person));
+        return person;
+    }
+
+    @Test
+    public void testLoadFieldsAfterLoad() throws Exception
+    {
+        saveWithBiography();
+        Person loaded = persons.loadOneBy("name", "person");
+        assertEquals("", loaded.biography);
+        loaded.loadFields(collection, "biography");
+        assertEquals("long text", loaded.biography);
+        assertTrue(loaded.createUpdate().keySet().isEmpty());
+    }
+
+    @Test
+    public void testLoadFieldsAfterSave() throws Exception
+    {
+        Person person = saveWithBiography();
+        person.biography = "";
+        person.loadFields(collection, "biography");
+        assertEquals("long text", person.biography);
+    }
+
+    @Test
+    public void testLoadFieldsAfterCreateUpdate() throws Exception
+    {
+        saveWithBiography();
+        Person loaded = persons.loadOneBy("name", "person");
+        loaded.age = 21;
+        assertTrue(persons.update(loaded));
+        loaded.loadFields(collection, "biography");
+        assertEquals("long text", loaded.biography);
+        assertTrue(loaded.createUpdate().keySet().isEmpty());
+    }
+
+    @Test
+    public void testLoadFieldsAfterEncode() throws Exception
+    {
+        Person person = saveWithBiography();
+        Person copy = reflector.create(Person.class);
+        MongoDBCodec codec = reflector.getCodecManager().getCodec(MongoDBCodec.class);
+        codec.decodeReflected(copy, codec.encodeReflected(person), null);
+        copy.biography = "";
+        codec.encodeReflected(copy);
+        copy.loadFields(collection, "biography");
+        assertEquals("long text", copy.biography);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLoadFieldsWithoutId() throws Exception
+    {
+        Person.of(reflector, "person", 20).loadFields(collection, "biography");
+    }
+
+    @Test
+    public void testLoadIdentityWithoutId() throws Exception
+    {
+        MongoDBCodec codec = reflector.getCodecManager().getCodec(MongoDBCodec.class);
+        DBObject dbo = new BasicDBObject("name", "person");
+        Person first = codec.loadIdentity(Person.class, "test", "persons", dbo);
+        assertEquals("person", first.name);
+        assertNull(codec.getIdentity(Person.class, "test", "persons", null));
+        // without an id there is nothing to identify the document by
+        assertNotSame(first, codec.loadIdentity(Person.class, "test", "persons", dbo));
+    }
+}
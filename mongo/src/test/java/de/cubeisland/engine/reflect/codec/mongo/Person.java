@@ -0,0 +1,59 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.cubeisland.engine.reflect.Reflector;
+import de.cubeisland.engine.reflect.Section;
+import de.cubeisland.engine.reflect.codec.mongo.annotations.Indexed;
+import de.cubeisland.engine.reflect.codec.mongo.annotations.Lazy;
+
+public class Person extends ReflectedDBObject
+{
+    @Indexed(unique = true)
+    public String name = "";
+    public int age = 0;
+    public float height = 1.5f;
+    public short rank = 1;
+    public List<String> tags = new ArrayList<String>();
+    public Address address = new Address();
+    @Lazy
+    public String biography = "";
+
+    public class Address implements Section
+    {
+        @Indexed
+        public String city = "";
+        public String street = "";
+    }
+
+    public static Person of(Reflector reflector, String name, int age)
+    {
+        Person person = reflector.create(Person.class);
+        person.name = name;
+        person.age = age;
+        return person;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBRefBase;
+import com.mongodb.InMemoryDB;
+import com.mongodb.InMemoryDBCollection;
+import de.cubeisland.engine.reflect.Reflector;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ReferenceTest
+{
+    private Reflector reflector;
+    private InMemoryDB db;
+    private InMemoryDBCollection persons;
+    private InMemoryDBCollection others;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        db = new InMemoryDB("test");
+        persons = db.getCollection("persons");
+        others = db.getCollection("others");
+        for (long i = 1; i <= 3; i++)
+        {
+            persons.insert(new BasicDBObject("_id", i).append("name", "person" + i));
+            others.insert(new BasicDBObject("_id", i).append("name", "other" + i));
+        }
+    }
+
+    private Reference<Person> ref(InMemoryDB db, String collection, Object id)
+    {
+        return new Reference<Person>(reflector, new DBRefBase(db, collection, id));
+    }
+
+    @Test
+    public void testFetchAllQueriesOncePerCollection() throws Exception
+    {
+        List<Reference<Person>> references = Arrays.asList(ref(db, "persons", 1L), ref(db, "others", 2L),
+                                                           ref(db, "persons", 3L), ref(db, "persons", 4L),
+                                                           ref(db, "others", 1L));
+        List<Person> fetched = Reference.fetchAll(references, Person.class);
+        assertEquals(1, persons.getQueries());
+        assertEquals(1, others.getQueries());
+        assertEquals(5, fetched.size());
+        assertEquals("person1", fetched.get(0).name);
+        assertEquals("other2", fetched.get(1).name);
+        assertEquals("person3", fetched.get(2).name);
+        assertNull(fetched.get(3));
+        assertEquals("other1", fetched.get(4).name);
+    }
+
+    @Test
+    public void testSharedIdentity() throws Exception
+    {
+        Person fetched = ref(db, "persons", 1L).fetch(Person.class);
+        assertNotNull(fetched);
+        assertSame(fetched, ref(db, "persons", 1L).fetch(Person.class));
+        assertSame(fetched, Reference.fetchAll(Arrays.asList(ref(db, "persons", 1L)), Person.class).get(0));
+        // the second fetch is answered by the identity map
+        assertEquals(1, persons.getQueries());
+    }
+
+    @Test
+    public void testNumericIds() throws Exception
+    {
+        List<Person> fetched = Reference.fetchAll(Arrays.asList(ref(db, "persons", 1), ref(db, "persons", 2.0)),
+                                                  Person.class);
+        assertEquals("person1", fetched.get(0).name);
+        assertEquals("person2", fetched.get(1).name);
+        assertSame(fetched.get(0), ref(db, "persons", 1L).fetch(Person.class));
+    }
+
+    @Test
+    public void testIdentityPerDatabase() throws Exception
+    {
+        InMemoryDB other = new InMemoryDB("other");
+        other.getCollection("persons").insert(new BasicDBObject("_id", 1L).append("name", "elsewhere"));
+        Person fetched = ref(db, "persons", 1L).fetch(Person.class);
+        Person elsewhere = ref(other, "persons", 1L).fetch(Person.class);
+        assertNotSame(fetched, elsewhere);
+        assertEquals("person1", fetched.name);
+        assertEquals("elsewhere", elsewhere.name);
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.mongo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.InMemoryDB;
+import com.mongodb.InMemoryDBCollection;
+import com.mongodb.MongoException;
+import de.cubeisland.engine.converter.ParallelConversion;
+import de.cubeisland.engine.reflect.Reflector;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+public class ReflectedCollectionTest
+{
+    private Reflector reflector;
+    private InMemoryDBCollection collection;
+    private ReflectedCollection<Person> persons;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        collection = new InMemoryDB("test").getCollection("persons");
+        persons = new ReflectedCollection<Person>(reflector, Person.class, collection);
+    }
+
+    private List<Person> create(int amount)
+    {
+        List<Person> list = new ArrayList<Person>();
+        for (int i = 0; i < amount; i++)
+        {
+            list.add(Person.of(reflector, "person" + i, i));
+        }
+        return list;
+    }
+
+    @Test
+    public void testSaveAllOnce() throws Exception
+    {
+        List<Person> list = create(3);
+        assertEquals(3, persons.saveAll(list));
+        assertEquals(1, collection.getBulkOperations());
+        List<DBObject> documents = collection.getDocuments();
+        assertEquals(3, documents.size());
+        for (int i = 0; i < 3; i++)
+        {
+            assertNotNull(list.get(i).getId());
+            assertEquals(list.get(i).getId(), documents.get(i).get("_id"));
+            assertEquals("person" + i, documents.get(i).get("name"));
+        }
+    }
+
+    @Test
+    public void testSaveAllTwiceDoesNotDuplicate() throws Exception
+    {
+        List<Person> list = create(3);
+        persons.saveAll(list);
+        list.get(1).age = 42;
+        persons.saveAll(list);
+        assertEquals(2, collection.getBulkOperations());
+        List<DBObject> documents = collection.getDocuments();
+        assertEquals(3, documents.size());
+        assertEquals(42, documents.get(1).get("age"));
+    }
+
+    @Test
+    public void testBatches() throws Exception
+    {
+        persons.setBatchSize(2);
+        assertEquals(5, persons.saveAll(create(5)));
+        assertEquals(3, collection.getBulkOperations());
+        assertEquals(5, collection.getDocuments().size());
+    }
+
+    @Test
+    public void testFailedBulkOperation() throws Exception
+    {
+        List<Person> list = create(3);
+        collection.failBulkOperations(1);
+        try
+        {
+            persons.saveAll(list);
+            fail();
+        }
+        catch (MongoException expected)
+        {
+            // nothing got written
+        }
+        assertEquals(0, collection.getDocuments().size());
+        persons.saveAll(list);
+        assertEquals(3, collection.getDocuments().size());
+    }
+
+    @Test
+    public void testParallelConversion() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            MongoDBCodec codec = reflector.getCodecManager().getCodec(MongoDBCodec.class);
+            codec.getConverterManager().setParallelConversion(new ParallelConversion(executor, 4, 1));
+            List<Person> list = create(50);
+            persons.saveAll(list);
+            List<DBObject> documents = collection.getDocuments();
+            assertEquals(50, documents.size());
+            for (int i = 0; i < 50; i++)
+            {
+                assertEquals(list.get(i).getId(), documents.get(i).get("_id"));
+                assertEquals(i, documents.get(i).get("age"));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        List<Person> list = create(3);
+        list.get(2).biography = "long text";
+        persons.saveAll(list);
+        List<Person> loaded = persons.loadAll(new BasicDBObject());
+        assertEquals(3, loaded.size());
+        for (int i = 0; i < 3; i++)
+        {
+            assertEquals(list.get(i).getId(), loaded.get(i).getId());
+            assertEquals(list.get(i).name, loaded.get(i).name);
+            // lazy fields are left out
+            assertEquals("", loaded.get(i).biography);
+        }
+        assertEquals(Arrays.asList(list.get(1).getId()), Arrays.asList(persons.loadOneBy("name", "person1").getId()));
+    }
+
+    @Test
+    public void testSaveKeepsUnloadedLazyFields() throws Exception
+    {
+        List<Person> list = create(2);
+        list.get(1).biography = "long text";
+        persons.saveAll(list);
+        List<Person> loaded = persons.loadAll(new BasicDBObject());
+        loaded.get(1).age = 42;
+        assertEquals(2, persons.saveAll(loaded));
+        DBObject stored = collection.findOne(new BasicDBObject("_id", list.get(1).getId()));
+        assertEquals("long text", stored.get("biography"));
+        assertEquals(42, stored.get("age"));
+    }
+
+    @Test
+    public void testEnsureIndexesOnce() throws Exception
+    {
+        persons.ensureIndexes();
+        assertEquals(Arrays.<DBObject>asList(new BasicDBObject("name", 1), new BasicDBObject("address.city", 1)),
+                     collection.getIndexes());
+        int creations = collection.getIndexCreations();
+        persons.ensureIndexes();
+        new ReflectedCollection<Person>(reflector, Person.class, collection).ensureIndexes();
+        assertEquals(creations, collection.getIndexCreations());
+    }
+
+    @Test
+    public void testEnsureIndexesRetried() throws Exception
+    {
+        collection.failIndexCreations(1);
+        try
+        {
+            persons.ensureIndexes();
+            fail();
+        }
+        catch (MongoException expected)
+        {
+            // the indexes are not marked as created
+        }
+        persons.ensureIndexes();
+        assertEquals(2, collection.getIndexes().size());
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.nbt;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import de.cubeisland.engine.converter.node.ByteNode;
+import de.cubeisland.engine.converter.node.DoubleNode;
+import de.cubeisland.engine.converter.node.FloatNode;
+import de.cubeisland.engine.converter.node.IntNode;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.LongNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.NullNode;
+import de.cubeisland.engine.converter.node.ShortNode;
+import de.cubeisland.engine.converter.node.StringNode;
+
+import static de.cubeisland.engine.reflect.codec.nbt.NBTConstants.*;
+
+/**
+ * Reads a binary NBT stream directly into Nodes
+ */
+final class NBTNodeReader
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private final DataInput in;
+
+    NBTNodeReader(DataInput in)
+    {
+        this.in = in;
+    }
+
+    /**
+     * Wraps the given stream into a buffered stream decompressing it if it starts with the gzip header
+     *
+     * @param is the InputStream
+     *
+     * @return the NBTNodeReader
+     */
+    static NBTNodeReader of(InputStream is) throws IOException
+    {
+        BufferedInputStream buffered = new BufferedInputStream(is, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == GZIP_MAGIC_1 && second == GZIP_MAGIC_2)
+        {
+            return new NBTNodeReader(new DataInputStream(new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE)));
+        }
+        return new NBTNodeReader(new DataInputStream(buffered));
+    }
+
+    /**
+     * Reads the named root compound
+     *
+     * @return the MapNode or an empty MapNode if the stream is empty
+     */
+    MapNode readRoot() throws IOException
+    {
+        byte type;
+        try
+        {
+            type = this.in.readByte();
+        }
+        catch (EOFException e)
+        {
+            return MapNode.emptyMap();
+        }
+        if (type != TAG_COMPOUND)
+        {
+            throw new IOException("The root tag has to be a compound! Found: " + type);
+        }
+        this.readString();
+        return this.readCompound();
+    }
+
+    private MapNode readCompound() throws IOException
+    {
+        MapNode mapNode = MapNode.emptyMap();
+        byte type;
+        while ((type = this.in.readByte()) != TAG_END)
+        {
+            String name = this.readString();
+            mapNode.set(name, this.readPayload(type));
+        }
+        return mapNode;
+    }
+
+    private Node readPayload(byte type) throws IOException
+    {
+        switch (type)
+        {
+            case TAG_END:
+                return NullNode.emptyNode();
+            case TAG_BYTE:
+                return new ByteNode(this.in.readByte());
+            case TAG_SHORT:
+                return new ShortNode(this.in.readShort());
+            case TAG_INT:
+                return new IntNode(this.in.readInt());
+            case TAG_LONG:
+                return new LongNode(this.in.readLong());
+            case TAG_FLOAT:
+                return new FloatNode(this.in.readFloat());
+            case TAG_DOUBLE:
+                return new DoubleNode(this.in.readDouble());
+            case TAG_BYTE_ARRAY:
+                byte[] bytes = new byte[this.readLength()];
+                this.in.readFully(bytes);
+                ListNode byteList = ListNode.emptyList();
+                for (byte b : bytes)
+                {
+                    byteList.addNode(new ByteNode(b));
+                }
+                return byteList;
+            case TAG_STRING:
+                return new StringNode(this.readString());
+            case TAG_LIST:
+                byte elementType = this.in.readByte();
+                int size = this.readLength();
+                ListNode listNode = ListNode.emptyList();
+                for (int i = 0; i < size; i++)
+                {
+                    listNode.addNode(this.readPayload(elementType));
+                }
+                return listNode;
+            case TAG_COMPOUND:
+                return this.readCompound();
+            case TAG_INT_ARRAY:
+                int length = this.readLength();
+                ListNode intList = ListNode.emptyList();
+                for (int i = 0; i < length; i++)
+                {
+                    intList.addNode(new IntNode(this.in.readInt()));
+                }
+                return intList;
+            default:
+                throw new IOException("Unknown tag type: " + type);
+        }
+    }
+
+    private int readLength() throws IOException
+    {
+        int length = this.in.readInt();
+        if (length < 0)
+        {
+            throw new IOException("Negative length: " + length);
+        }
+        return length;
+    }
+
+    private String readString() throws IOException
+    {
+        byte[] bytes = new byte[this.in.readUnsignedShort()];
+        this.in.readFully(bytes);
+        return new String(bytes, CHARSET);
+    }
+}
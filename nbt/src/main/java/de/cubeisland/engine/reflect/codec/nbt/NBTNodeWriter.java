@@ -0,0 +1,198 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.nbt;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map.Entry;
+import de.cubeisland.engine.converter.node.BooleanNode;
+import de.cubeisland.engine.converter.node.ByteNode;
+import de.cubeisland.engine.converter.node.CharNode;
+import de.cubeisland.engine.converter.node.DoubleNode;
+import de.cubeisland.engine.converter.node.FloatNode;
+import de.cubeisland.engine.converter.node.IntNode;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.LongNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.NullNode;
+import de.cubeisland.engine.converter.node.ShortNode;
+import de.cubeisland.engine.converter.node.StringNode;
+
+import static de.cubeisland.engine.reflect.codec.nbt.NBTConstants.*;
+
+/**
+ * Writes Nodes directly into a binary NBT stream
+ * <p>Null values in compounds are omitted as NBT has no named end tag
+ */
+final class NBTNodeWriter
+{
+    private final DataOutput out;
+
+    NBTNodeWriter(DataOutput out)
+    {
+        this.out = out;
+    }
+
+    /**
+     * Writes the given MapNode as the named root compound
+     *
+     * @param node the MapNode
+     */
+    void writeRoot(MapNode node) throws IOException
+    {
+        this.out.writeByte(TAG_COMPOUND);
+        this.writeString(ROOT_NAME);
+        this.writeCompound(node);
+    }
+
+    private void writeCompound(MapNode node) throws IOException
+    {
+        for (Entry<String, Node> entry : node.getValue().entrySet())
+        {
+            Node value = entry.getValue();
+            byte type = typeOf(value);
+            if (type == TAG_END)
+            {
+                continue;
+            }
+            this.out.writeByte(type);
+            this.writeString(node.getOriginalKey(entry.getKey()));
+            this.writePayload(type, value);
+        }
+        this.out.writeByte(TAG_END);
+    }
+
+    private void writePayload(byte type, Node value) throws IOException
+    {
+        switch (type)
+        {
+            case TAG_END:
+                return;
+            case TAG_BYTE:
+                if (value instanceof BooleanNode)
+                {
+                    this.out.writeByte(((BooleanNode)value).getValue() ? 1 : 0);
+                }
+                else
+                {
+                    this.out.writeByte(((ByteNode)value).getValue());
+                }
+                return;
+            case TAG_SHORT:
+                this.out.writeShort(((ShortNode)value).getValue());
+                return;
+            case TAG_INT:
+                this.out.writeInt(((IntNode)value).getValue());
+                return;
+            case TAG_LONG:
+                this.out.writeLong(((LongNode)value).getValue());
+                return;
+            case TAG_FLOAT:
+                this.out.writeFloat(((FloatNode)value).getValue());
+                return;
+            case TAG_DOUBLE:
+                this.out.writeDouble(((DoubleNode)value).getValue());
+                return;
+            case TAG_STRING:
+                this.writeString(value.asText());
+                return;
+            case TAG_LIST:
+                List<Node> list = ((ListNode)value).getValue();
+                byte elementType = list.isEmpty() ? TAG_COMPOUND : typeOf(list.get(0));
+                this.out.writeByte(elementType);
+                this.out.writeInt(list.size());
+                for (Node element : list)
+                {
+                    if (typeOf(element) != elementType)
+                    {
+                        throw new IOException("NBT lists cannot contain different types of values!");
+                    }
+                    this.writePayload(elementType, element);
+                }
+                return;
+            case TAG_COMPOUND:
+                this.writeCompound((MapNode)value);
+                return;
+            default:
+                throw new IOException("Unknown tag type: " + type);
+        }
+    }
+
+    private void writeString(String string) throws IOException
+    {
+        byte[] bytes = string.getBytes(CHARSET);
+        if (bytes.length > 0xFFFF)
+        {
+            throw new IOException("String is too long for NBT: " + bytes.length + " bytes");
+        }
+        this.out.writeShort(bytes.length);
+        this.out.write(bytes);
+    }
+
+    private static byte typeOf(Node value) throws IOException
+    {
+        if (value instanceof MapNode)
+        {
+            return TAG_COMPOUND;
+        }
+        if (value instanceof ListNode)
+        {
+            return TAG_LIST;
+        }
+        if (value instanceof BooleanNode || value instanceof ByteNode)
+        {
+            return TAG_BYTE;
+        }
+        if (value instanceof StringNode || value instanceof CharNode)
+        {
+            return TAG_STRING;
+        }
+        if (value instanceof IntNode)
+        {
+            return TAG_INT;
+        }
+        if (value instanceof LongNode)
+        {
+            return TAG_LONG;
+        }
+        if (value instanceof DoubleNode)
+        {
+            return TAG_DOUBLE;
+        }
+        if (value instanceof FloatNode)
+        {
+            return TAG_FLOAT;
+        }
+        if (value instanceof ShortNode)
+        {
+            return TAG_SHORT;
+        }
+        if (value instanceof NullNode)
+        {
+            return TAG_END;
+        }
+        throw new IOException("Unknown Node! " + value.getClass().getName());
+    }
+}
@@ -0,0 +1,400 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.nbt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import de.cubeisland.engine.reflect.Reflector;
+import de.cubeisland.engine.reflect.exception.InvalidReflectedObjectException;
+
+/**
+ * Stores many {@link ReflectedNBT} in a single file of 4KiB sectors
+ * <p>The file starts with a header containing the capacity and a table of slots.
+ * Each used slot points to the first sector and the length of one record.
+ * A record is the UTF-8 key prefixed with its length followed by the NBT data.
+ * <p>Saving a record writes it into free sectors or at the end of the file and only then points its slot to them.
+ * The previous record stays intact until its slot got updated, its sectors are reused afterwards.
+ * Use {@link #flush()} to make sure a record reached the storage device before its slot.
+ */
+public class NBTRegion implements Closeable
+{
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int MAGIC = 0x52464e42; // RFNB
+    private static final int SECTOR_SIZE = 4096;
+    private static final int HEADER_PREFIX = 8;
+    private static final int SLOT_SIZE = 8;
+
+    private final Reflector reflector;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int capacity;
+    private final int headerSectors;
+
+    private final int[] sectorOffsets;
+    private final int[] lengths;
+    private final Map<String, Integer> slots = new HashMap<String, Integer>();
+    private final BitSet usedSectors = new BitSet();
+
+    /**
+     * Opens or creates a region file with the {@link #DEFAULT_CAPACITY}
+     *
+     * @param reflector the Reflector creating the reflected objects
+     * @param file      the region file
+     */
+    public NBTRegion(Reflector reflector, File file) throws IOException
+    {
+        this(reflector, file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens or creates a region file
+     *
+     * @param reflector the Reflector creating the reflected objects
+     * @param file      the region file
+     * @param capacity  the maximum amount of records when creating a new file, ignored for existing files
+     */
+    public NBTRegion(Reflector reflector, File file, int capacity) throws IOException
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("The capacity has to be positive!");
+        }
+        this.reflector = reflector;
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        try
+        {
+            if (this.channel.size() == 0)
+            {
+                this.capacity = capacity;
+                this.headerSectors = headerSectors(capacity);
+                ByteBuffer header = ByteBuffer.allocate(this.headerSectors * SECTOR_SIZE);
+                header.putInt(MAGIC).putInt(capacity);
+                header.rewind();
+                writeFully(header, 0);
+            }
+            else
+            {
+                ByteBuffer prefix = ByteBuffer.allocate(HEADER_PREFIX);
+                readFully(prefix, 0);
+                if (prefix.getInt(0) != MAGIC)
+                {
+                    throw new IOException(file.getName() + " is not a region file!");
+                }
+                this.capacity = prefix.getInt(4);
+                this.headerSectors = headerSectors(this.capacity);
+            }
+            this.sectorOffsets = new int[this.capacity];
+            this.lengths = new int[this.capacity];
+            this.usedSectors.set(0, this.headerSectors);
+            this.readHeader();
+        }
+        catch (IOException e)
+        {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    private static int headerSectors(int capacity)
+    {
+        return (HEADER_PREFIX + capacity * SLOT_SIZE + SECTOR_SIZE - 1) / SECTOR_SIZE;
+    }
+
+    private void readHeader() throws IOException
+    {
+        ByteBuffer table = ByteBuffer.allocate(this.capacity * SLOT_SIZE);
+        readFully(table, HEADER_PREFIX);
+        table.rewind();
+        ByteBuffer keyLength = ByteBuffer.allocate(2);
+        for (int slot = 0; slot < this.capacity; slot++)
+        {
+            int sectorOffset = table.getInt();
+            int length = table.getInt();
+            if (length <= 0)
+            {
+                continue;
+            }
+            keyLength.clear();
+            readFully(keyLength, (long)sectorOffset * SECTOR_SIZE);
+            ByteBuffer key = ByteBuffer.allocate(keyLength.getShort(0) & 0xFFFF);
+            readFully(key, (long)sectorOffset * SECTOR_SIZE + 2);
+            this.slots.put(new String(key.array(), NBTConstants.CHARSET), slot);
+            this.sectorOffsets[slot] = sectorOffset;
+            this.lengths[slot] = length;
+            this.usedSectors.set(sectorOffset, sectorOffset + sectorCount(length));
+        }
+    }
+
+    private static int sectorCount(int length)
+    {
+        return (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+    }
+
+    /**
+     * Returns the keys of all stored records
+     *
+     * @return the keys
+     */
+    public synchronized Set<String> keys()
+    {
+        return Collections.unmodifiableSet(new HashSet<String>(this.slots.keySet()));
+    }
+
+    /**
+     * Returns whether a record is stored for given key
+     *
+     * @param key the key
+     *
+     * @return true if the record exists
+     */
+    public synchronized boolean contains(String key)
+    {
+        return this.slots.containsKey(key);
+    }
+
+    /**
+     * Reads the NBT data stored for given key
+     *
+     * @param key the key
+     *
+     * @return the data or null if no record is stored for the key
+     */
+    public synchronized byte[] read(String key) throws IOException
+    {
+        Integer slot = this.slots.get(key);
+        if (slot == null)
+        {
+            return null;
+        }
+        int keyLength = 2 + key.getBytes(NBTConstants.CHARSET).length;
+        ByteBuffer data = ByteBuffer.allocate(this.lengths[slot] - keyLength);
+        readFully(data, (long)this.sectorOffsets[slot] * SECTOR_SIZE + keyLength);
+        return data.array();
+    }
+
+    /**
+     * Stores the NBT data for given key replacing any previous record
+     *
+     * @param key  the key
+     * @param data the data
+     */
+    public synchronized void write(String key, byte[] data) throws IOException
+    {
+        byte[] keyBytes = key.getBytes(NBTConstants.CHARSET);
+        if (keyBytes.length > 0xFFFF)
+        {
+            throw new IllegalArgumentException("The key is too long!");
+        }
+        int length = 2 + keyBytes.length + data.length;
+        int sectors = sectorCount(length);
+
+        Integer slot = this.slots.get(key);
+        boolean newSlot = slot == null;
+        if (newSlot)
+        {
+            slot = this.freeSlot();
+        }
+        // the old sectors are still marked as used so the old record is never overwritten
+        int sectorOffset = this.allocate(sectors);
+        ByteBuffer record = ByteBuffer.allocate(sectors * SECTOR_SIZE);
+        record.putShort((short)keyBytes.length).put(keyBytes).put(data);
+        record.rewind();
+        writeFully(record, (long)sectorOffset * SECTOR_SIZE);
+
+        int oldSectorOffset = this.sectorOffsets[slot];
+        int oldLength = this.lengths[slot];
+        this.sectorOffsets[slot] = sectorOffset;
+        this.lengths[slot] = length;
+        try
+        {
+            this.writeSlot(slot);
+        }
+        catch (IOException e)
+        {
+            // the old record is still the valid one
+            this.sectorOffsets[slot] = oldSectorOffset;
+            this.lengths[slot] = oldLength;
+            throw e;
+        }
+        if (newSlot)
+        {
+            this.slots.put(key, slot);
+        }
+        else
+        {
+            this.usedSectors.clear(oldSectorOffset, oldSectorOffset + sectorCount(oldLength));
+        }
+        this.usedSectors.set(sectorOffset, sectorOffset + sectors);
+    }
+
+    /**
+     * Removes the record stored for given key
+     *
+     * @param key the key
+     *
+     * @return true if a record was removed
+     */
+    public synchronized boolean remove(String key) throws IOException
+    {
+        Integer slot = this.slots.remove(key);
+        if (slot == null)
+        {
+            return false;
+        }
+        this.usedSectors.clear(this.sectorOffsets[slot], this.sectorOffsets[slot] + sectorCount(this.lengths[slot]));
+        this.sectorOffsets[slot] = 0;
+        this.lengths[slot] = 0;
+        this.writeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Loads the reflected stored for given key
+     *
+     * @param clazz the reflected class
+     * @param key   the key
+     *
+     * @return the loaded reflected or a default reflected if no record is stored for the key
+     */
+    public <T extends ReflectedNBT> T load(Class<T> clazz, String key)
+    {
+        T reflected = this.reflector.create(clazz);
+        try
+        {
+            byte[] data = this.read(key);
+            if (data != null)
+            {
+                reflected.loadFrom(new ByteArrayInputStream(data));
+            }
+        }
+        catch (IOException e)
+        {
+            throw new InvalidReflectedObjectException("Region to load from cannot be accessed!", e);
+        }
+        return reflected;
+    }
+
+    /**
+     * Saves the reflected for given key
+     *
+     * @param key       the key
+     * @param reflected the reflected to save
+     */
+    public void save(String key, ReflectedNBT reflected)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reflected.save(out);
+        try
+        {
+            this.write(key, out.toByteArray());
+        }
+        catch (IOException e)
+        {
+            throw new InvalidReflectedObjectException("Region to save into cannot be accessed!", e);
+        }
+    }
+
+    private int freeSlot()
+    {
+        for (int slot = 0; slot < this.capacity; slot++)
+        {
+            if (this.lengths[slot] == 0)
+            {
+                return slot;
+            }
+        }
+        throw new IllegalStateException("The region is full! Capacity: " + this.capacity);
+    }
+
+    /**
+     * Finds the first run of free sectors that is long enough or the end of the file
+     */
+    private int allocate(int sectors)
+    {
+        int start = this.usedSectors.nextClearBit(this.headerSectors);
+        while (true)
+        {
+            int end = this.usedSectors.nextSetBit(start);
+            if (end == -1 || end - start >= sectors)
+            {
+                return start;
+            }
+            start = this.usedSectors.nextClearBit(end);
+        }
+    }
+
+    private void writeSlot(int slot) throws IOException
+    {
+        ByteBuffer entry = ByteBuffer.allocate(SLOT_SIZE);
+        entry.putInt(this.sectorOffsets[slot]).putInt(this.lengths[slot]);
+        entry.rewind();
+        writeFully(entry, HEADER_PREFIX + (long)slot * SLOT_SIZE);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (this.channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("Unexpected end of the region file!");
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            this.channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Forces all changes to be written to the storage device
+     */
+    public synchronized void flush() throws IOException
+    {
+        this.channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        this.file.close();
+    }
+}
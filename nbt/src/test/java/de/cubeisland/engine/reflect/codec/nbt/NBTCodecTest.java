@@ -0,0 +1,104 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.nbt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import de.cubeisland.engine.converter.node.IntNode;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.StringNode;
+import de.cubeisland.engine.reflect.ReflectedTest;
+import de.cubeisland.engine.reflect.Reflector;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.cubeisland.engine.reflect.util.AssertionUtils.assertEqualsDeep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class NBTCodecTest
+{
+    private Reflector reflector;
+    private NBTCodec codec;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        codec = reflector.getCodecManager().getCodec(NBTCodec.class);
+    }
+
+    private byte[] save(ReflectedTest reflected)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.saveReflected(reflected, out);
+        return out.toByteArray();
+    }
+
+    private ReflectedTest load(byte[] data)
+    {
+        ReflectedTest reflected = reflector.create(ReflectedTest.class);
+        codec.loadReflected(reflected, new ByteArrayInputStream(data));
+        return reflected;
+    }
+
+    @Test
+    public void testPlainRoundTrip() throws Exception
+    {
+        ReflectedTest expected = ReflectedTest.getDefaultReflectedTest(reflector);
+        byte[] data = save(expected);
+        assertEquals(NBTConstants.TAG_COMPOUND, data[0]);
+        assertEqualsDeep(codec.getConverterManager(), expected, load(data));
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws Exception
+    {
+        ReflectedTest expected = ReflectedTest.getDefaultReflectedTest(reflector);
+        byte[] plain = save(expected);
+        codec.setCompressed(true);
+        byte[] data = save(expected);
+        assertEquals((byte)NBTConstants.GZIP_MAGIC_1, data[0]);
+        assertEquals((byte)NBTConstants.GZIP_MAGIC_2, data[1]);
+        assertNotEquals(plain.length, data.length);
+        // compression is detected while loading
+        assertEqualsDeep(codec.getConverterManager(), expected, load(data));
+        codec.setCompressed(false);
+        assertEqualsDeep(codec.getConverterManager(), expected, load(data));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMixedListRejected() throws Exception
+    {
+        ListNode list = ListNode.emptyList();
+        list.addNode(new IntNode(1));
+        list.addNode(new StringNode("two"));
+        MapNode root = MapNode.emptyMap();
+        root.set("mixed", list);
+        new NBTNodeWriter(new DataOutputStream(new ByteArrayOutputStream())).writeRoot(root);
+    }
+}
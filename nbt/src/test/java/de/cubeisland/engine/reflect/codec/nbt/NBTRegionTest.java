@@ -0,0 +1,195 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.nbt;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import de.cubeisland.engine.reflect.Reflector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NBTRegionTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Reflector reflector;
+    private File file;
+    private NBTRegion region;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        file = new File(folder.getRoot(), "region.dat");
+        region = new NBTRegion(reflector, file, 16);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        region.close();
+    }
+
+    private static byte[] data(int length, int value)
+    {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte)value);
+        return data;
+    }
+
+    private void reopen() throws Exception
+    {
+        region.close();
+        region = new NBTRegion(reflector, file);
+    }
+
+    @Test
+    public void testWriteAndReopen() throws Exception
+    {
+        region.write("a", data(10, 1));
+        region.write("b", data(5000, 2));
+        assertArrayEquals(data(10, 1), region.read("a"));
+        assertArrayEquals(data(5000, 2), region.read("b"));
+        assertNull(region.read("c"));
+
+        reopen();
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b")), region.keys());
+        assertArrayEquals(data(10, 1), region.read("a"));
+        assertArrayEquals(data(5000, 2), region.read("b"));
+    }
+
+    @Test
+    public void testGrowAndMove() throws Exception
+    {
+        region.write("a", data(100, 1));
+        region.write("b", data(100, 2));
+        long length = file.length();
+        // a does not fit into its sector anymore and has to move behind b
+        region.write("a", data(6000, 3));
+        assertTrue(file.length() > length);
+        assertArrayEquals(data(6000, 3), region.read("a"));
+        assertArrayEquals(data(100, 2), region.read("b"));
+        // the freed sector of a is reused for a new record
+        length = file.length();
+        region.write("c", data(100, 4));
+        assertEquals(length, file.length());
+        // even a record that shrinks is written into fresh sectors before its old ones get freed
+        region.write("a", data(10, 5));
+        assertEquals(length + 4096, file.length());
+        length = file.length();
+        region.write("d", data(6000, 6));
+        assertEquals(length, file.length());
+
+        reopen();
+        assertArrayEquals(data(10, 5), region.read("a"));
+        assertArrayEquals(data(100, 2), region.read("b"));
+        assertArrayEquals(data(100, 4), region.read("c"));
+        assertArrayEquals(data(6000, 6), region.read("d"));
+    }
+
+    @Test
+    public void testOldRecordSurvivesLostSlotUpdate() throws Exception
+    {
+        region.write("a", data(100, 1));
+        region.flush();
+        byte[] header = read(file, 4096);
+        region.write("a", data(100, 2));
+        region.close();
+        // a crash before the slot reached the disk leaves the old slot pointing to the old record
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            raf.write(header);
+        }
+        finally
+        {
+            raf.close();
+        }
+        region = new NBTRegion(reflector, file);
+        assertArrayEquals(data(100, 1), region.read("a"));
+    }
+
+    private static byte[] read(File file, int length) throws Exception
+    {
+        byte[] bytes = new byte[length];
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            raf.readFully(bytes);
+        }
+        finally
+        {
+            raf.close();
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testRemove() throws Exception
+    {
+        region.write("a", data(100, 1));
+        region.write("b", data(100, 2));
+        assertTrue(region.remove("a"));
+        assertFalse(region.remove("a"));
+        assertFalse(region.contains("a"));
+        assertNull(region.read("a"));
+
+        reopen();
+        assertFalse(region.contains("a"));
+        assertArrayEquals(data(100, 2), region.read("b"));
+    }
+
+    @Test
+    public void testReflected() throws Exception
+    {
+        Player player = reflector.create(Player.class);
+        player.name = "Steve";
+        player.level = 42;
+        region.save("steve", player);
+
+        reopen();
+        Player loaded = region.load(Player.class, "steve");
+        assertEquals("Steve", loaded.name);
+        assertEquals(42, loaded.level);
+        assertEquals("", region.load(Player.class, "alex").name);
+    }
+
+    public static class Player extends ReflectedNBT
+    {
+        public String name = "";
+        public int level = 0;
+    }
+}
@@ -27,9 +27,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.Writer;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.cubeisland.engine.converter.ConversionException;
 import de.cubeisland.engine.converter.node.ListNode;
@@ -41,12 +45,19 @@ import de.cubeisland.engine.reflect.Reflected;
 import de.cubeisland.engine.reflect.ReflectedFile;
 import de.cubeisland.engine.reflect.codec.FileCodec;
 import de.cubeisland.engine.reflect.codec.ReaderWriterFileCodec;
+import de.cubeisland.engine.reflect.codec.yaml.YamlSubsetParser.UnsupportedSyntaxException;
+import de.cubeisland.engine.reflect.codec.yaml.YamlTemplate.KeyPosition;
 import de.cubeisland.engine.reflect.util.StringUtils;
-import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.composer.ComposerException;
 import org.yaml.snakeyaml.parser.ParserException;
 import org.yaml.snakeyaml.scanner.ScannerException;
 
+import static de.cubeisland.engine.reflect.Reflector.LOGGER;
+import static de.cubeisland.engine.reflect.codec.yaml.YamlTemplate.KeyPosition.AFTER_CONTAINER;
+import static de.cubeisland.engine.reflect.codec.yaml.YamlTemplate.KeyPosition.AFTER_VALUE;
+import static de.cubeisland.engine.reflect.codec.yaml.YamlTemplate.KeyPosition.FIRST;
 import static de.cubeisland.engine.reflect.util.StringUtils.isEmpty;
+import static java.util.logging.Level.FINE;
 
 /**
  * A Codec using the YAML format
@@ -57,6 +68,23 @@ public class YamlCodec extends ReaderWriterFileCodec
     private static final String OFFSET = "  ";
     private static final String LINE_BREAK = "\n";
     private static final String QUOTE = "'";
+    private static final String[] OFFSETS = new String[16];
+
+    static
+    {
+        OFFSETS[0] = "";
+        for (int i = 1; i < OFFSETS.length; i++)
+        {
+            OFFSETS[i] = OFFSETS[i - 1] + OFFSET;
+        }
+    }
+
+    private final YamlNodeFactory nodeFactory = new YamlNodeFactory();
+    private final ConcurrentMap<Class, YamlTemplate> templates = new ConcurrentHashMap<Class, YamlTemplate>();
+    private volatile boolean subsetParser = false;
+    private volatile boolean templatesEnabled = true;
+    private final AtomicInteger subsetParsed = new AtomicInteger();
+    private final AtomicInteger subsetFallbacks = new AtomicInteger();
 
     @Override
     public final String getExtension()
@@ -66,7 +94,6 @@ public class YamlCodec extends ReaderWriterFileCodec
 
     // Reflected loading Method
     @Override
-    @SuppressWarnings("unchecked")
     protected final MapNode load(Reader in, Reflected reflected) throws ConversionException
     {
         try
@@ -76,13 +103,21 @@ public class YamlCodec extends ReaderWriterFileCodec
                 // InputStream null -> reflected was not existent
                 return MapNode.emptyMap();
             }
-            Map<Object, Object> map = (Map<Object, Object>)new Yaml().load(in);
-            if (map == null)
+            MapNode node;
+            if (this.subsetParser)
+            {
+                node = this.parseSubset(in);
+            }
+            else
+            {
+                node = nodeFactory.compose(in);
+            }
+            if (node == null)
             {
-                // loadValues null -> reflected exists but was empty
+                // composed null -> reflected exists but was empty
                 return MapNode.emptyMap();
             }
-            return (MapNode)this.getConverterManager().convertToNode(map);
+            return node;
         }
         catch (ScannerException ex)
         {
@@ -92,6 +127,100 @@ public class YamlCodec extends ReaderWriterFileCodec
         {
             throw ConversionException.of(this, in, "Failed to parse the YAML reflected object. Try encoding it as UTF-8 or validate on yamllint.com", ex);
         }
+        catch (ComposerException ex)
+        {
+            throw ConversionException.of(this, in, "Failed to parse the YAML reflected object. Try encoding it as UTF-8 or validate on yamllint.com", ex);
+        }
+    }
+
+    /**
+     * Parses the document using the {@link YamlSubsetParser} falling back to SnakeYAML if needed
+     *
+     * @param in the Reader to read from
+     *
+     * @return the MapNode or null if the document is empty
+     */
+    private MapNode parseSubset(Reader in) throws ConversionException
+    {
+        String text;
+        try
+        {
+            StringBuilder sb = new StringBuilder();
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                sb.append(buffer, 0, read);
+            }
+            text = sb.toString();
+        }
+        catch (IOException ex)
+        {
+            throw ConversionException.of(this, in, "Could not read the YAML reflected object", ex);
+        }
+        try
+        {
+            MapNode node = new YamlSubsetParser(nodeFactory, text).parse();
+            this.subsetParsed.incrementAndGet();
+            return node;
+        }
+        catch (UnsupportedSyntaxException ex)
+        {
+            LOGGER.log(FINE, ex.getMessage() + "! Falling back to SnakeYAML");
+            this.subsetFallbacks.incrementAndGet();
+            return nodeFactory.compose(new StringReader(text));
+        }
+    }
+
+    /**
+     * Returns how many documents got parsed by the {@link YamlSubsetParser}
+     */
+    final int getSubsetParsedCount()
+    {
+        return this.subsetParsed.get();
+    }
+
+    /**
+     * Returns how many documents had to be handed over to SnakeYAML by the {@link YamlSubsetParser}
+     */
+    final int getSubsetFallbackCount()
+    {
+        return this.subsetFallbacks.get();
+    }
+
+    /**
+     * Enables or disables the fast parser for the YAML subset written by this codec
+     * <p>Documents using YAML syntax the fast parser does not support are still loaded using SnakeYAML
+     *
+     * @param enabled true to enable the fast parser
+     *
+     * @return fluent interface
+     */
+    public final YamlCodec setSubsetParserEnabled(boolean enabled)
+    {
+        this.subsetParser = enabled;
+        return this;
+    }
+
+    /**
+     * Returns whether the fast parser for the YAML subset written by this codec is used
+     *
+     * @return true if enabled
+     */
+    public final boolean isSubsetParserEnabled()
+    {
+        return subsetParser;
+    }
+
+    /**
+     * Enables or disables the output templates
+     * <p>Without templates every key is rendered directly which is used to verify the templates
+     *
+     * @param enabled true to use the templates
+     */
+    final void setTemplatesEnabled(boolean enabled)
+    {
+        this.templatesEnabled = enabled;
     }
 
     // Reflected saving Methods
@@ -110,7 +239,8 @@ public class YamlCodec extends ReaderWriterFileCodec
                 writer.append("# ").append(StringUtils.implode("\n# ", fRef.head())).append(LINE_BREAK)
                       .append(LINE_BREAK);
             }
-            convertMapNode(writer, node, 0, false);
+            // without a reflected there is no class to keep a template for
+            convertMapNode(writer, node, 0, false, reflected == null ? null : getTemplate(reflected.getClass()));
             if (fRef != null && fRef.tail() != null && fRef.tail().length != 0)
             {
                 writer.append("# ").append(StringUtils.implode("\n# ", fRef.tail()));
@@ -122,6 +252,32 @@ public class YamlCodec extends ReaderWriterFileCodec
         }
     }
 
+    /**
+     * Returns the output template for given reflected class
+     *
+     * @param clazz the class of the reflected
+     *
+     * @return the template or null if templates are disabled
+     */
+    private YamlTemplate getTemplate(Class clazz)
+    {
+        if (!this.templatesEnabled)
+        {
+            return null;
+        }
+        YamlTemplate template = this.templates.get(clazz);
+        if (template == null)
+        {
+            template = new YamlTemplate(0, false);
+            YamlTemplate previous = this.templates.putIfAbsent(clazz, template);
+            if (previous != null)
+            {
+                template = previous;
+            }
+        }
+        return template;
+    }
+
     /**
      * Serializes a single <code>Node</code> that is NOT a <code>ParentNode</code>
      *
@@ -167,44 +323,30 @@ public class YamlCodec extends ReaderWriterFileCodec
     /**
      * Serializes the values in the <code>MapNode</code>
      *
-     * @param writer the OutputStreamWriter to serialize into
-     * @param value  the MapNode to serialize
-     * @param offset the current offset
-     * @param inList true if currently directly under a ListNode
+     * @param writer   the OutputStreamWriter to serialize into
+     * @param value    the MapNode to serialize
+     * @param offset   the current offset
+     * @param inList   true if currently directly under a ListNode
+     * @param template the template for this MapNode or null if not available
      */
-    private void convertMapNode(Writer writer, MapNode value, int offset, boolean inList) throws IOException
+    private void convertMapNode(Writer writer, MapNode value, int offset, boolean inList, YamlTemplate template) throws IOException
     {
         Map<String, Node> map = value.getMappedNodes();
         boolean endOfMapOrList = false;
         boolean first = true;
         for (Entry<String, Node> entry : map.entrySet())
         {
-            boolean hasLine = false;
-            if (endOfMapOrList && !inList)
-            {
-                writer.append(LINE_BREAK);
-                hasLine = true;
-            }
-            StringBuilder sb = new StringBuilder();
-            String comment = buildComment(entry.getValue().getComments(), offset);
-            if (!isEmpty(comment.trim()))
+            KeyPosition position = first ? FIRST : endOfMapOrList ? AFTER_CONTAINER : AFTER_VALUE;
+            String key = value.getOriginalKey(entry.getKey());
+            String[] comments = entry.getValue().getComments();
+            if (template == null)
             {
-                // if not already one line free
-                if ((!hasLine && !first) || inList)
-                {
-                    sb.append(LINE_BREAK);
-                    // add free line before comment
-                }
-                sb.append(comment);
+                writer.append(keyPrefix(key, comments, offset, inList, position));
             }
-
-            if (!(first && inList) || (!comment.isEmpty()))
+            else
             {
-                // Map in collection first does not get offset
-                sb.append(getOffset(offset));
+                writer.append(template.prefix(entry.getKey(), key, comments, position));
             }
-            sb.append(value.getOriginalKey(entry.getKey())).append(": ");
-            writer.append(sb.toString());
             // Now convert the value
             if (entry.getValue() instanceof MapNode)
             {
@@ -215,7 +357,8 @@ public class YamlCodec extends ReaderWriterFileCodec
                 else
                 {
                     writer.append(LINE_BREAK);
-                    convertMapNode(writer, (MapNode)entry.getValue(), offset + 1, false);
+                    convertMapNode(writer, (MapNode)entry.getValue(), offset + 1, false,
+                                   template == null ? null : template.child(entry.getKey()));
                 }
                 endOfMapOrList = true;
             }
@@ -227,7 +370,8 @@ public class YamlCodec extends ReaderWriterFileCodec
                 }
                 else
                 {
-                    convertListNode(writer, (ListNode)entry.getValue(), offset);
+                    convertListNode(writer, (ListNode)entry.getValue(), offset,
+                                    template == null ? null : template.elements(entry.getKey()));
                 }
                 endOfMapOrList = true;
             }
@@ -244,11 +388,12 @@ public class YamlCodec extends ReaderWriterFileCodec
     /**
      * Serializes the values in the <code>ListNode</code>
      *
-     * @param writer the OutputStreamWriter to serialize into
-     * @param value  the ListNode to serialize
-     * @param offset the current offset
+     * @param writer   the OutputStreamWriter to serialize into
+     * @param value    the ListNode to serialize
+     * @param offset   the current offset
+     * @param template the template for listed MapNodes or null if not available
      */
-    private void convertListNode(Writer writer, ListNode value, int offset) throws IOException
+    private void convertListNode(Writer writer, ListNode value, int offset, YamlTemplate template) throws IOException
     {
         writer.append(LINE_BREAK);
         boolean endOfMapOrList = false;
@@ -268,13 +413,13 @@ public class YamlCodec extends ReaderWriterFileCodec
                 }
                 else
                 {
-                    convertMapNode(writer, (MapNode)listedNode, offset + 2, true);
+                    convertMapNode(writer, (MapNode)listedNode, offset + 2, true, template);
                 }
                 endOfMapOrList = true;
             }
             else if (listedNode instanceof ListNode)
             {
-                convertListNode(writer, (ListNode)listedNode, offset + 1);
+                convertListNode(writer, (ListNode)listedNode, offset + 1, null);
                 endOfMapOrList = true;
             }
             else
@@ -287,6 +432,48 @@ public class YamlCodec extends ReaderWriterFileCodec
 
     // HELPER Methods
 
+    /**
+     * Builds the text written in front of a value in a MapNode
+     *
+     * @param key      the original key
+     * @param comments the comments of the value
+     * @param offset   the current offset
+     * @param inList   true if the MapNode is directly under a ListNode
+     * @param position the position of the key in the MapNode
+     *
+     * @return the comment, indentation and key
+     */
+    static String keyPrefix(String key, String[] comments, int offset, boolean inList, KeyPosition position)
+    {
+        boolean first = position == FIRST;
+        boolean hasLine = false;
+        StringBuilder sb = new StringBuilder();
+        if (position == AFTER_CONTAINER && !inList)
+        {
+            sb.append(LINE_BREAK);
+            hasLine = true;
+        }
+        String comment = buildComment(comments, offset);
+        if (!isEmpty(comment.trim()))
+        {
+            // if not already one line free
+            if ((!hasLine && !first) || inList)
+            {
+                sb.append(LINE_BREAK);
+                // add free line before comment
+            }
+            sb.append(comment);
+        }
+
+        if (!(first && inList) || (!comment.isEmpty()))
+        {
+            // Map in collection first does not get offset
+            sb.append(getOffset(offset));
+        }
+        sb.append(key).append(": ");
+        return sb.toString();
+    }
+
     /**
      * Returns the offset as String
      *
@@ -294,8 +481,12 @@ public class YamlCodec extends ReaderWriterFileCodec
      *
      * @return the offset
      */
-    private String getOffset(int offset)
+    private static String getOffset(int offset)
     {
+        if (offset < OFFSETS.length)
+        {
+            return OFFSETS[offset];
+        }
         StringBuilder off = new StringBuilder("");
         for (int i = 0; i < offset; ++i)
         {
@@ -312,7 +503,7 @@ public class YamlCodec extends ReaderWriterFileCodec
      *
      * @return the built comment
      */
-    private String buildComment(String[] comments, int offset)
+    private static String buildComment(String[] comments, int offset)
     {
         if (comments == null || comments.length == 0)
         {
@@ -0,0 +1,336 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.yaml;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.node.BooleanNode;
+import de.cubeisland.engine.converter.node.ByteNode;
+import de.cubeisland.engine.converter.node.DoubleNode;
+import de.cubeisland.engine.converter.node.IntNode;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.LongNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.NullNode;
+import de.cubeisland.engine.converter.node.StringNode;
+import org.yaml.snakeyaml.composer.Composer;
+import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Builds {@link Node}s directly from the node graph composed by SnakeYAML
+ * <p>No intermediate Java objects are constructed and no converters are looked up.
+ * Scalars are typed exactly once using the tag resolved while composing.
+ * <p>Instances are immutable and can be shared between threads.
+ */
+final class YamlNodeFactory
+{
+    private final Resolver resolver = new Resolver();
+
+    /**
+     * Composes the YAML document read from given Reader into a MapNode
+     *
+     * @param in the Reader to read from
+     *
+     * @return the MapNode or null if the document is empty
+     */
+    public MapNode compose(Reader in) throws ConversionException
+    {
+        org.yaml.snakeyaml.nodes.Node root = new Composer(new ParserImpl(new StreamReader(in)), resolver).getSingleNode();
+        if (root == null)
+        {
+            return null;
+        }
+        if (!(root instanceof MappingNode))
+        {
+            throw ConversionException.of(this, root, "The root of a YAML reflected object has to be a mapping!");
+        }
+        return toMapNode((MappingNode)root);
+    }
+
+    /**
+     * Creates the Node for a plain (unquoted) scalar resolving its tag implicitly
+     *
+     * @param value the plain scalar
+     *
+     * @return the typed Node
+     */
+    Node plainScalar(String value) throws ConversionException
+    {
+        return scalar(resolver.resolve(NodeId.scalar, value, true), value);
+    }
+
+    /**
+     * Returns the normalized key for a plain (unquoted) scalar
+     *
+     * @param value the plain scalar
+     *
+     * @return the key
+     */
+    String plainKey(String value) throws ConversionException
+    {
+        Tag tag = resolver.resolve(NodeId.scalar, value, true);
+        if (Tag.STR.equals(tag))
+        {
+            return value;
+        }
+        return scalar(tag, value).asText();
+    }
+
+    private Node toNode(org.yaml.snakeyaml.nodes.Node yamlNode) throws ConversionException
+    {
+        if (yamlNode instanceof ScalarNode)
+        {
+            return scalar(yamlNode.getTag(), ((ScalarNode)yamlNode).getValue());
+        }
+        if (yamlNode instanceof MappingNode)
+        {
+            return toMapNode((MappingNode)yamlNode);
+        }
+        if (yamlNode instanceof SequenceNode)
+        {
+            ListNode listNode = ListNode.emptyList();
+            for (org.yaml.snakeyaml.nodes.Node listed : ((SequenceNode)yamlNode).getValue())
+            {
+                listNode.addNode(toNode(listed));
+            }
+            return listNode;
+        }
+        throw ConversionException.of(this, yamlNode, "Unknown YAML node!");
+    }
+
+    private MapNode toMapNode(MappingNode yamlNode) throws ConversionException
+    {
+        MapNode mapNode = MapNode.emptyMap();
+        List<org.yaml.snakeyaml.nodes.Node> merged = null;
+        for (NodeTuple tuple : yamlNode.getValue())
+        {
+            org.yaml.snakeyaml.nodes.Node keyNode = tuple.getKeyNode();
+            if (Tag.MERGE.equals(keyNode.getTag()))
+            {
+                if (merged == null)
+                {
+                    merged = new ArrayList<org.yaml.snakeyaml.nodes.Node>();
+                }
+                merged.add(tuple.getValueNode());
+                continue;
+            }
+            if (!(keyNode instanceof ScalarNode))
+            {
+                throw ConversionException.of(this, keyNode, "Only scalar keys are supported!");
+            }
+            mapNode.set(key((ScalarNode)keyNode), toNode(tuple.getValueNode()));
+        }
+        if (merged != null)
+        {
+            for (org.yaml.snakeyaml.nodes.Node mergedNode : merged)
+            {
+                merge(mapNode, mergedNode);
+            }
+        }
+        return mapNode;
+    }
+
+    /**
+     * Adds the entries of a merged mapping (<code>&lt;&lt;: *anchor</code>) that are not already set
+     */
+    private void merge(MapNode mapNode, org.yaml.snakeyaml.nodes.Node mergedNode) throws ConversionException
+    {
+        if (mergedNode instanceof SequenceNode)
+        {
+            for (org.yaml.snakeyaml.nodes.Node node : ((SequenceNode)mergedNode).getValue())
+            {
+                merge(mapNode, node);
+            }
+            return;
+        }
+        if (!(mergedNode instanceof MappingNode))
+        {
+            throw ConversionException.of(this, mergedNode, "Only mappings can be merged!");
+        }
+        MapNode toMerge = toMapNode((MappingNode)mergedNode);
+        for (Entry<String, Node> entry : toMerge.getMappedNodes().entrySet())
+        {
+            if (mapNode.get(entry.getKey()) == null)
+            {
+                mapNode.set(toMerge.getOriginalKey(entry.getKey()), entry.getValue());
+            }
+        }
+    }
+
+    private String key(ScalarNode keyNode) throws ConversionException
+    {
+        if (Tag.STR.equals(keyNode.getTag()))
+        {
+            return keyNode.getValue();
+        }
+        return scalar(keyNode.getTag(), keyNode.getValue()).asText();
+    }
+
+    /**
+     * Creates the Node for a scalar value with the given resolved tag
+     *
+     * @param tag   the resolved tag
+     * @param value the scalar value
+     *
+     * @return the typed Node
+     */
+    Node scalar(Tag tag, String value) throws ConversionException
+    {
+        if (Tag.STR.equals(tag))
+        {
+            return new StringNode(value);
+        }
+        if (Tag.INT.equals(tag))
+        {
+            return integer(value);
+        }
+        if (Tag.FLOAT.equals(tag))
+        {
+            return floating(value);
+        }
+        if (Tag.BOOL.equals(tag))
+        {
+            String lowered = value.toLowerCase();
+            return BooleanNode.of("true".equals(lowered) || "yes".equals(lowered) || "on".equals(lowered));
+        }
+        if (Tag.NULL.equals(tag))
+        {
+            return NullNode.emptyNode();
+        }
+        if (Tag.BINARY.equals(tag))
+        {
+            ListNode bytes = ListNode.emptyList();
+            for (byte b : Base64Coder.decode(value.replaceAll("\\s", "").toCharArray()))
+            {
+                bytes.addNode(new ByteNode(b));
+            }
+            return bytes;
+        }
+        // timestamps and custom tags are kept as text
+        return new StringNode(value);
+    }
+
+    private Node integer(String value) throws ConversionException
+    {
+        String number = value.replace("_", "");
+        boolean negative = false;
+        if (number.startsWith("-") || number.startsWith("+"))
+        {
+            negative = number.charAt(0) == '-';
+            number = number.substring(1);
+        }
+        try
+        {
+            long result;
+            if ("0".equals(number))
+            {
+                result = 0;
+            }
+            else if (number.startsWith("0b"))
+            {
+                result = Long.parseLong(number.substring(2), 2);
+            }
+            else if (number.startsWith("0x"))
+            {
+                result = Long.parseLong(number.substring(2), 16);
+            }
+            else if (number.startsWith("0"))
+            {
+                result = Long.parseLong(number.substring(1), 8);
+            }
+            else if (number.contains(":"))
+            {
+                result = 0;
+                for (String digits : number.split(":"))
+                {
+                    result = result * 60 + Long.parseLong(digits);
+                }
+            }
+            else
+            {
+                result = Long.parseLong(number);
+            }
+            result = negative ? -result : result;
+            if (result >= Integer.MIN_VALUE && result <= Integer.MAX_VALUE)
+            {
+                return new IntNode((int)result);
+            }
+            return new LongNode(result);
+        }
+        catch (NumberFormatException e)
+        {
+            // too big for a long
+            return new StringNode(value);
+        }
+    }
+
+    private Node floating(String value) throws ConversionException
+    {
+        String number = value.replace("_", "").toLowerCase();
+        double sign = 1;
+        if (number.startsWith("-") || number.startsWith("+"))
+        {
+            sign = number.charAt(0) == '-' ? -1 : 1;
+            number = number.substring(1);
+        }
+        try
+        {
+            if (".inf".equals(number))
+            {
+                return new DoubleNode(sign * Double.POSITIVE_INFINITY);
+            }
+            if (".nan".equals(number))
+            {
+                return new DoubleNode(Double.NaN);
+            }
+            if (number.contains(":"))
+            {
+                double result = 0;
+                for (String digits : number.split(":"))
+                {
+                    result = result * 60 + Double.parseDouble(digits);
+                }
+                return new DoubleNode(sign * result);
+            }
+            return new DoubleNode(sign * Double.parseDouble(number));
+        }
+        catch (NumberFormatException e)
+        {
+            throw ConversionException.of(this, value, "Invalid floating point number!", e);
+        }
+    }
+}
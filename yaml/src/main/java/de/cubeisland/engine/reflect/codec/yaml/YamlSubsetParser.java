@@ -0,0 +1,344 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.yaml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.cubeisland.engine.converter.ConversionException;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.NullNode;
+import de.cubeisland.engine.converter.node.StringNode;
+
+/**
+ * A parser for exactly the subset of YAML written by {@link YamlCodec}
+ * <p>Supported are block maps, block lists, <code>|</code> literals, single-quoted and plain scalars,
+ * <code>{}</code>, <code>[]</code> and full-line <code># comments</code>.
+ * Anything else makes the parser fail with an {@link UnsupportedSyntaxException} so the document can be
+ * handed over to SnakeYAML instead.
+ * <p>A parser instance can only be used once and only by one thread.
+ */
+final class YamlSubsetParser
+{
+    private static final String PLAIN_INDICATORS = "\"'?*&!|>%@`[]{},#:-";
+
+    private final YamlNodeFactory factory;
+    private final String[] lines;
+    private int pos = 0;
+
+    YamlSubsetParser(YamlNodeFactory factory, String text)
+    {
+        this.factory = factory;
+        if (text.length() != 0 && text.charAt(0) == '\uFEFF')
+        {
+            text = text.substring(1);
+        }
+        this.lines = text.split("\n", -1);
+        for (int i = 0; i < lines.length; i++)
+        {
+            String line = lines[i];
+            if (line.endsWith("\r"))
+            {
+                lines[i] = line.substring(0, line.length() - 1);
+            }
+        }
+    }
+
+    /**
+     * Parses the document
+     *
+     * @return the MapNode
+     *
+     * @throws UnsupportedSyntaxException when the document uses syntax outside of the supported subset
+     */
+    MapNode parse() throws UnsupportedSyntaxException, ConversionException
+    {
+        MapNode root = MapNode.emptyMap();
+        if (nextContentLine() && indentOf(lines[pos]) != 0)
+        {
+            throw new UnsupportedSyntaxException(pos);
+        }
+        parseMap(root, 0);
+        if (nextContentLine())
+        {
+            throw new UnsupportedSyntaxException(pos);
+        }
+        return root;
+    }
+
+    /**
+     * Skips blank and comment lines
+     *
+     * @return false if the end of the document was reached
+     */
+    private boolean nextContentLine() throws UnsupportedSyntaxException
+    {
+        while (pos < lines.length)
+        {
+            String line = lines[pos];
+            String trimmed = line.trim();
+            if (trimmed.length() != 0 && !trimmed.startsWith("#"))
+            {
+                if (line.indexOf('\t') != -1 || line.startsWith("---") || line.startsWith("...") || line.startsWith("%"))
+                {
+                    throw new UnsupportedSyntaxException(pos);
+                }
+                return true;
+            }
+            pos++;
+        }
+        return false;
+    }
+
+    private void parseMap(MapNode map, int indent) throws UnsupportedSyntaxException, ConversionException
+    {
+        while (nextContentLine())
+        {
+            String line = lines[pos];
+            int lineIndent = indentOf(line);
+            if (lineIndent < indent)
+            {
+                return;
+            }
+            if (lineIndent > indent)
+            {
+                throw new UnsupportedSyntaxException(pos);
+            }
+            pos++;
+            parseEntry(map, line.substring(indent), indent);
+        }
+    }
+
+    /**
+     * Parses a single map entry whose line was already consumed
+     */
+    private void parseEntry(MapNode map, String content, int indent) throws UnsupportedSyntaxException, ConversionException
+    {
+        int separator = content.indexOf(": ");
+        if (separator == -1)
+        {
+            if (!content.endsWith(":"))
+            {
+                throw new UnsupportedSyntaxException(pos - 1);
+            }
+            separator = content.length() - 1;
+        }
+        String key = content.substring(0, separator);
+        if (key.length() == 0 || key.endsWith(" ") || key.contains(" #")
+            || PLAIN_INDICATORS.indexOf(key.charAt(0)) != -1)
+        {
+            throw new UnsupportedSyntaxException(pos - 1);
+        }
+        map.set(factory.plainKey(key), parseValue(content.substring(separator + 1).trim(), indent));
+    }
+
+    /**
+     * Parses a value following a key or a list indicator
+     *
+     * @param value       the trimmed rest of the line
+     * @param indent      the indentation of the key or list indicator
+     */
+    private Node parseValue(String value, int indent) throws UnsupportedSyntaxException, ConversionException
+    {
+        if (value.length() == 0)
+        {
+            if (!nextContentLine() || indentOf(lines[pos]) <= indent)
+            {
+                return NullNode.emptyNode();
+            }
+            int nestedIndent = indentOf(lines[pos]);
+            if (isListItem(lines[pos].substring(nestedIndent)))
+            {
+                return parseList(nestedIndent);
+            }
+            MapNode map = MapNode.emptyMap();
+            parseMap(map, nestedIndent);
+            return map;
+        }
+        if ("{}".equals(value))
+        {
+            return MapNode.emptyMap();
+        }
+        if ("[]".equals(value))
+        {
+            return ListNode.emptyList();
+        }
+        if ("|".equals(value))
+        {
+            return parseLiteral(indent);
+        }
+        if (value.charAt(0) == '\'')
+        {
+            return new StringNode(unquote(value));
+        }
+        if (value.contains(" #") || value.contains(": ") || value.endsWith(":") || value.startsWith("- ")
+            || "-".equals(value) || PLAIN_INDICATORS.indexOf(value.charAt(0)) != -1 && value.charAt(0) != '-')
+        {
+            throw new UnsupportedSyntaxException(pos - 1);
+        }
+        return factory.plainScalar(value);
+    }
+
+    private ListNode parseList(int indent) throws UnsupportedSyntaxException, ConversionException
+    {
+        ListNode list = ListNode.emptyList();
+        while (nextContentLine())
+        {
+            String line = lines[pos];
+            int lineIndent = indentOf(line);
+            if (lineIndent < indent)
+            {
+                break;
+            }
+            String content = line.substring(indent);
+            if (lineIndent > indent || !isListItem(content))
+            {
+                throw new UnsupportedSyntaxException(pos);
+            }
+            pos++;
+            String item = content.substring(1).trim();
+            if (isListItem(item))
+            {
+                throw new UnsupportedSyntaxException(pos - 1);
+            }
+            if (isInlineMap(item))
+            {
+                // the first entry of a map in a list is on the same line as the list indicator
+                MapNode map = MapNode.emptyMap();
+                parseEntry(map, item, indent + 2);
+                parseMap(map, indent + 2);
+                list.addNode(map);
+            }
+            else
+            {
+                list.addNode(parseValue(item, indent));
+            }
+        }
+        return list;
+    }
+
+    private StringNode parseLiteral(int indent) throws UnsupportedSyntaxException
+    {
+        if (pos >= lines.length || isBlank(lines[pos]))
+        {
+            throw new UnsupportedSyntaxException(pos);
+        }
+        int blockIndent = indentOf(lines[pos]);
+        if (blockIndent <= indent)
+        {
+            return new StringNode("");
+        }
+        List<String> content = new ArrayList<String>();
+        while (pos < lines.length)
+        {
+            String line = lines[pos];
+            if (line.length() <= blockIndent && isBlank(line))
+            {
+                content.add("");
+            }
+            else if (indentOf(line) >= blockIndent)
+            {
+                content.add(line.substring(blockIndent));
+            }
+            else
+            {
+                break;
+            }
+            pos++;
+        }
+        // clip chomping: keep exactly one final line break
+        int end = content.size();
+        while (end > 0 && content.get(end - 1).length() == 0)
+        {
+            end--;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < end; i++)
+        {
+            sb.append(content.get(i)).append('\n');
+        }
+        return new StringNode(sb.toString());
+    }
+
+    private String unquote(String value) throws UnsupportedSyntaxException
+    {
+        if (value.length() < 2 || value.charAt(value.length() - 1) != '\'')
+        {
+            throw new UnsupportedSyntaxException(pos - 1);
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 1; i < value.length() - 1; i++)
+        {
+            char c = value.charAt(i);
+            if (c == '\'')
+            {
+                if (i + 1 >= value.length() - 1 || value.charAt(i + 1) != '\'')
+                {
+                    throw new UnsupportedSyntaxException(pos - 1);
+                }
+                i++;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static boolean isListItem(String content)
+    {
+        return content.startsWith("- ") || "-".equals(content);
+    }
+
+    private static boolean isInlineMap(String item)
+    {
+        return item.length() != 0 && item.charAt(0) != '\'' && !"|".equals(item)
+            && (item.contains(": ") || item.endsWith(":"));
+    }
+
+    private static boolean isBlank(String line)
+    {
+        return line.trim().length() == 0;
+    }
+
+    private static int indentOf(String line)
+    {
+        int indent = 0;
+        while (indent < line.length() && line.charAt(indent) == ' ')
+        {
+            indent++;
+        }
+        return indent;
+    }
+
+    /**
+     * Thrown when a document contains syntax outside of the supported subset
+     */
+    static final class UnsupportedSyntaxException extends Exception
+    {
+        UnsupportedSyntaxException(int line)
+        {
+            super("Unsupported YAML syntax in line " + (line + 1));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.yaml;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A precompiled output template for one level of a YAML document
+ * <p>The keys, comments and indentation written for a reflected class never change between saves.
+ * This template caches the pre-encoded text in front of every value so that only the values have to be rendered.
+ * <p>Levels with more than {@link #MAX_KEYS} distinct keys are considered to be dynamic maps and are not cached.
+ * <p>Templates can be shared between threads.
+ */
+final class YamlTemplate
+{
+    static final int MAX_KEYS = 64;
+
+    private final int offset;
+    private final boolean inList;
+    private final ConcurrentMap<String, Fragment> fragments = new ConcurrentHashMap<String, Fragment>();
+    private final ConcurrentMap<String, YamlTemplate> children = new ConcurrentHashMap<String, YamlTemplate>();
+    private final ConcurrentMap<String, YamlTemplate> elements = new ConcurrentHashMap<String, YamlTemplate>();
+    private volatile boolean dynamic = false;
+
+    YamlTemplate(int offset, boolean inList)
+    {
+        this.offset = offset;
+        this.inList = inList;
+    }
+
+    /**
+     * Returns the text to write in front of the value of given key
+     *
+     * @param lowerKey the lowercased key
+     * @param key      the original key
+     * @param comments the comments of the value
+     * @param position the position of the key
+     *
+     * @return the encoded comment, indentation and key
+     */
+    String prefix(String lowerKey, String key, String[] comments, KeyPosition position)
+    {
+        if (dynamic)
+        {
+            return YamlCodec.keyPrefix(key, comments, offset, inList, position);
+        }
+        Fragment fragment = fragments.get(lowerKey);
+        if (fragment == null || !fragment.matches(key, comments))
+        {
+            if (fragment == null && fragments.size() >= MAX_KEYS)
+            {
+                this.dynamic = true;
+                this.fragments.clear();
+                this.children.clear();
+                this.elements.clear();
+                return YamlCodec.keyPrefix(key, comments, offset, inList, position);
+            }
+            fragment = new Fragment(key, comments);
+            fragments.put(lowerKey, fragment);
+        }
+        return fragment.prefixes[position.ordinal()];
+    }
+
+    /**
+     * Returns the template for the MapNode mapped to given key
+     *
+     * @param lowerKey the lowercased key
+     *
+     * @return the template or null if this level is dynamic
+     */
+    YamlTemplate child(String lowerKey)
+    {
+        return getOrCreate(children, lowerKey, offset + 1, false);
+    }
+
+    /**
+     * Returns the template for the MapNodes listed in the ListNode mapped to given key
+     *
+     * @param lowerKey the lowercased key
+     *
+     * @return the template or null if this level is dynamic
+     */
+    YamlTemplate elements(String lowerKey)
+    {
+        return getOrCreate(elements, lowerKey, offset + 2, true);
+    }
+
+    private YamlTemplate getOrCreate(ConcurrentMap<String, YamlTemplate> templates, String lowerKey, int offset, boolean inList)
+    {
+        if (dynamic)
+        {
+            return null;
+        }
+        YamlTemplate template = templates.get(lowerKey);
+        if (template == null)
+        {
+            template = new YamlTemplate(offset, inList);
+            YamlTemplate previous = templates.putIfAbsent(lowerKey, template);
+            if (previous != null)
+            {
+                template = previous;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * The position of a key in its MapNode
+     */
+    enum KeyPosition
+    {
+        /**
+         * The first key
+         */
+        FIRST,
+        /**
+         * A key following a simple value
+         */
+        AFTER_VALUE,
+        /**
+         * A key following a MapNode or ListNode
+         */
+        AFTER_CONTAINER
+    }
+
+    private final class Fragment
+    {
+        private final String key;
+        private final String[] comments;
+        private final String[] prefixes = new String[KeyPosition.values().length];
+
+        private Fragment(String key, String[] comments)
+        {
+            this.key = key;
+            this.comments = comments;
+            for (KeyPosition position : KeyPosition.values())
+            {
+                prefixes[position.ordinal()] = YamlCodec.keyPrefix(key, comments, offset, inList, position);
+            }
+        }
+
+        private boolean matches(String key, String[] comments)
+        {
+            return this.key.equals(key) && Arrays.equals(this.comments, comments);
+        }
+    }
+}
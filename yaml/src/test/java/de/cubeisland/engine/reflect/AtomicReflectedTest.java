@@ -0,0 +1,145 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import de.cubeisland.engine.reflect.codec.yaml.ReflectedYaml;
+import de.cubeisland.engine.reflect.exception.CodecIOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class AtomicReflectedTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Reflector reflector;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        file = folder.newFile("atomic.yml");
+    }
+
+    private void write(String content) throws IOException
+    {
+        FileWriter writer = new FileWriter(file);
+        try
+        {
+            writer.write(content);
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testReloadPublishesLoaded() throws Exception
+    {
+        write("value: 1\n");
+        AtomicReflected<Lenient> atomic = reflector.loadAtomic(Lenient.class, file, false);
+        Lenient first = atomic.get();
+        write("value: 2\n");
+        assertEquals(2, atomic.reload().value);
+        assertNotSame(first, atomic.get());
+        assertEquals(1, first.value);
+        assertEquals(1, atomic.getModCount());
+    }
+
+    @Test
+    public void testCorruptFileKeepsPublished() throws Exception
+    {
+        write("value: 1\n");
+        AtomicReflected<Lenient> atomic = reflector.loadAtomic(Lenient.class, file, false);
+        Lenient first = atomic.get();
+        write("value: [1\n");
+        assertSame(first, atomic.reload(true));
+        assertSame(first, atomic.get());
+        assertEquals(0, atomic.getModCount());
+        // the corrupt file is not replaced with the defaults either
+        assertEquals(-1, reflector.load(Lenient.class, file, false).value);
+    }
+
+    @Test
+    public void testCorruptFileThrowsWhenStrict() throws Exception
+    {
+        write("value: 1\n");
+        AtomicReflected<Strict> atomic = reflector.loadAtomic(Strict.class, file, false);
+        Strict first = atomic.get();
+        write("value: [1\n");
+        try
+        {
+            atomic.reload();
+            fail("The corrupt file was not reported");
+        }
+        catch (CodecIOException ignored)
+        {
+        }
+        assertSame(first, atomic.get());
+        assertEquals(0, atomic.getModCount());
+    }
+
+    @Test
+    public void testMissingFileKeepsPublished() throws Exception
+    {
+        write("value: 1\n");
+        AtomicReflected<Lenient> atomic = reflector.loadAtomic(Lenient.class, file, false);
+        Lenient first = atomic.get();
+        assertEquals(true, file.delete());
+        assertSame(first, atomic.reload(true));
+        assertSame(first, atomic.get());
+        assertEquals(0, atomic.getModCount());
+        assertEquals(1, atomic.get().value);
+        assertFalse(file.exists());
+    }
+
+    public static class Lenient extends ReflectedYaml
+    {
+        public int value = -1;
+
+        @Override
+        public boolean useStrictExceptionPolicy()
+        {
+            return false;
+        }
+    }
+
+    public static class Strict extends ReflectedYaml
+    {
+        public int value = -1;
+    }
+}
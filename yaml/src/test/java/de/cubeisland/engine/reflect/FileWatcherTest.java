@@ -0,0 +1,174 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.cubeisland.engine.reflect.codec.yaml.ReflectedYaml;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileWatcherTest
+{
+    private static final long INTERVAL = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Reflector reflector;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        reflector.setWatchInterval(INTERVAL);
+        file = folder.newFile("watched.yml");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        reflector.shutdown();
+    }
+
+    /**
+     * Writes the file and moves its modification time forward so every write is noticed
+     */
+    private void write(String content) throws IOException
+    {
+        long modified = file.lastModified();
+        FileWriter writer = new FileWriter(file);
+        try
+        {
+            writer.write(content);
+        }
+        finally
+        {
+            writer.close();
+        }
+        file.setLastModified(modified + 2000);
+    }
+
+    private Watched watch(ChangeListener<Watched> listener) throws IOException
+    {
+        write("value: 1\nname: first\n");
+        Watched watched = reflector.load(Watched.class, file, false);
+        watched.watch(Watched.class, listener);
+        return watched;
+    }
+
+    @Test
+    public void testReloadOnChange() throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Set<String>> paths = new AtomicReference<Set<String>>();
+        Watched watched = watch(new ChangeListener<Watched>()
+        {
+            public void onChange(Watched reflected, Set<String> changed)
+            {
+                paths.set(changed);
+                latch.countDown();
+            }
+        });
+        write("value: 2\nname: first\n");
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(2, watched.value);
+        assertEquals("first", watched.name);
+        assertEquals(1, paths.get().size());
+        assertTrue(paths.get().contains("value"));
+    }
+
+    @Test
+    public void testCorruptFileKeepsValues() throws Exception
+    {
+        final AtomicInteger changes = new AtomicInteger();
+        Watched watched = watch(new ChangeListener<Watched>()
+        {
+            public void onChange(Watched reflected, Set<String> changed)
+            {
+                changes.incrementAndGet();
+            }
+        });
+        watched.strict = false;
+        write("value: [2\n");
+        Thread.sleep(INTERVAL * 15);
+        assertEquals(0, changes.get());
+        assertEquals(1, watched.value);
+        assertEquals("first", watched.name);
+    }
+
+    @Test
+    public void testOwnSaveIsNotReloaded() throws Exception
+    {
+        final AtomicInteger changes = new AtomicInteger();
+        Watched watched = watch(new ChangeListener<Watched>()
+        {
+            public void onChange(Watched reflected, Set<String> changed)
+            {
+                changes.incrementAndGet();
+            }
+        });
+        int loads = Watched.LOADS.get();
+        watched.value = 3;
+        watched.save();
+        Thread.sleep(INTERVAL * 15);
+        assertEquals(loads, Watched.LOADS.get());
+        assertEquals(0, changes.get());
+        assertEquals(3, watched.value);
+    }
+
+    public static class Watched extends ReflectedYaml
+    {
+        static final AtomicInteger LOADS = new AtomicInteger();
+
+        public transient boolean strict = true;
+        public int value = 0;
+        public String name = "";
+
+        @Override
+        public boolean useStrictExceptionPolicy()
+        {
+            return strict;
+        }
+
+        @Override
+        public void onLoaded(File loadedFrom)
+        {
+            LOADS.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.cubeisland.engine.reflect.codec.yaml.ReflectedYaml;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReflectorTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Reflector reflector;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        reflector.shutdown();
+    }
+
+    private File write(String name, String content) throws IOException
+    {
+        File file = folder.newFile(name);
+        FileWriter writer = new FileWriter(file);
+        try
+        {
+            writer.write(content);
+        }
+        finally
+        {
+            writer.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testLoadAllErrors() throws Exception
+    {
+        File valid = write("valid.yml", "value: 1\n");
+        File corrupt = write("corrupt.yml", "value: [1\n");
+        BulkResult<Simple> result = reflector.loadAll(Simple.class, Arrays.asList(valid, corrupt, valid, corrupt), false);
+        assertEquals(Arrays.asList(valid, corrupt, valid, corrupt), result.getFiles());
+        assertEquals(1, result.getReflected().get(0).value);
+        assertNull(result.getReflected().get(1));
+        assertEquals(1, result.getReflected().get(2).value);
+        assertNull(result.getReflected().get(3));
+        // the corrupt file given twice is reported twice
+        assertTrue(result.hasErrors());
+        assertEquals(Arrays.asList(1, 3), new ArrayList<Integer>(result.getErrors().keySet()));
+        assertNull(result.getError(0));
+        assertNotNull(result.getError(3));
+    }
+
+    @Test
+    public void testSaveAllErrors() throws Exception
+    {
+        File directory = folder.newFolder("directory");
+        List<Simple> list = new ArrayList<Simple>();
+        for (File file : Arrays.asList(new File(folder.getRoot(), "saved.yml"), directory, directory))
+        {
+            Simple simple = reflector.create(Simple.class);
+            simple.setFile(file);
+            list.add(simple);
+        }
+        BulkResult<Simple> result = reflector.saveAll(list);
+        assertEquals(2, result.getErrors().size());
+        assertNull(result.getError(0));
+        assertEquals(list.get(0), result.getReflected().get(0));
+        assertTrue(new File(folder.getRoot(), "saved.yml").isFile());
+    }
+
+    @Test
+    public void testShutdownStopsWorkers() throws Exception
+    {
+        List<Thread> others = workers();
+        reflector.loadAll(Simple.class, Arrays.asList(write("a.yml", "value: 1\n"), write("b.yml", "value: 2\n")), false);
+        List<Thread> started = workers();
+        started.removeAll(others);
+        assertFalse(started.isEmpty());
+        reflector.shutdown();
+        for (Thread worker : started)
+        {
+            worker.join(5000);
+            assertFalse(worker.isAlive());
+        }
+    }
+
+    private static List<Thread> workers()
+    {
+        List<Thread> workers = new ArrayList<Thread>();
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+        {
+            if (thread.getName().startsWith("ReflecT-Worker-"))
+            {
+                workers.add(thread);
+            }
+        }
+        return workers;
+    }
+
+    public static class Simple extends ReflectedYaml
+    {
+        public int value = 0;
+    }
+}
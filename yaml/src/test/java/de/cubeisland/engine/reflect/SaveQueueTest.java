@@ -0,0 +1,155 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect;
+
+import java.io.File;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.cubeisland.engine.reflect.codec.yaml.ReflectedYaml;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SaveQueueTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Reflector reflector;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        file = new File(folder.getRoot(), "counted.yml");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        reflector.shutdown();
+    }
+
+    @Test
+    public void testCoalescing() throws Exception
+    {
+        reflector.setSaveDelay(500);
+        Counted counted = reflector.create(Counted.class);
+        counted.value = 1;
+        Future<File> first = counted.saveAsync(file);
+        counted.value = 2;
+        Future<File> second = counted.saveAsync(file);
+        counted.value = 3;
+        assertSame(first, second);
+        assertSame(first, counted.saveAsync(file));
+        assertFalse(first.isDone());
+
+        assertEquals(file, first.get());
+        assertEquals(1, counted.saves.get());
+        assertEquals(3, reflector.load(Counted.class, file, false).value);
+        assertEquals(0, reflector.getSaveQueue().getLockCount());
+    }
+
+    @Test
+    public void testShutdownWritesPendingSaves() throws Exception
+    {
+        reflector.setSaveDelay(60000);
+        Counted counted = reflector.create(Counted.class);
+        counted.value = 42;
+        Future<File> future = counted.saveAsync(file);
+        assertFalse(file.exists());
+        reflector.shutdown();
+        assertTrue(future.isDone());
+        assertEquals(42, reflector.load(Counted.class, file, false).value);
+    }
+
+    @Test
+    public void testSaveAfterShutdown() throws Exception
+    {
+        reflector.getSaveQueue();
+        reflector.shutdown();
+        Counted counted = reflector.create(Counted.class);
+        try
+        {
+            counted.saveAsync(file);
+            fail();
+        }
+        catch (RejectedExecutionException expected)
+        {
+            // the rejected save is not left pending
+        }
+        try
+        {
+            counted.saveAsync(file);
+            fail();
+        }
+        catch (RejectedExecutionException expected)
+        {
+            // still rejected instead of joining the first save
+        }
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testLatestSaveWrittenLast() throws Exception
+    {
+        reflector.setSaveDelay(0);
+        Counted counted = reflector.create(Counted.class);
+        for (int round = 0; round < 100; round++)
+        {
+            Future<File> last = null;
+            for (int i = 0; i < 20; i++)
+            {
+                counted.value = round * 20 + i;
+                last = counted.saveAsync(file);
+            }
+            // an older save that started before the latest one does not overwrite it
+            last.get();
+            assertEquals(counted.value, reflector.load(Counted.class, file, false).value);
+        }
+        assertEquals(0, reflector.getSaveQueue().getLockCount());
+    }
+
+    public static class Counted extends ReflectedYaml
+    {
+        public transient AtomicInteger saves = new AtomicInteger();
+        public int value = 0;
+
+        @Override
+        public void onSaved(File savedTo)
+        {
+            saves.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.cubeisland.engine.converter.ConverterManager;
+import de.cubeisland.engine.converter.ParallelConversion;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.reflect.codec.yaml.ReflectedYaml;
+import de.cubeisland.engine.reflect.codec.yaml.YamlCodec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SectionConverterTest
+{
+    private final AtomicInteger threads = new AtomicInteger();
+    private Reflector reflector;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        executor = Executors.newFixedThreadPool(2, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                threads.incrementAndGet();
+                return new Thread(r);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+        reflector.shutdown();
+    }
+
+    @Test
+    public void testParallelSiblingSections() throws Exception
+    {
+        Siblings siblings = reflector.create(Siblings.class);
+        siblings.first.name = "first";
+        siblings.second.values.add(42);
+        siblings.third.nested.flag = true;
+        YamlCodec codec = siblings.getCodec();
+        ConverterManager manager = codec.getConverterManager();
+        String sequential = new String(codec.toBytes(codec.convertReflected(siblings), siblings), "UTF-8");
+
+        manager.setParallelConversion(new ParallelConversion(executor, 4));
+        MapNode node = codec.convertReflected(siblings);
+        assertEquals(sequential, new String(codec.toBytes(node, siblings), "UTF-8"));
+
+        Siblings loaded = reflector.create(Siblings.class);
+        codec.fillReflected(loaded, node);
+        assertEquals("first", loaded.first.name);
+        assertEquals(siblings.second.values, loaded.second.values);
+        assertTrue(loaded.third.nested.flag);
+        // the sibling sections were converted on the executor
+        assertTrue(threads.get() > 0);
+
+        manager.setParallelConversion(null);
+        assertEquals(sequential, new String(codec.toBytes(codec.convertReflected(loaded), loaded), "UTF-8"));
+    }
+
+    public static class Siblings extends ReflectedYaml
+    {
+        public First first = new First();
+        public Second second = new Second();
+        public Third third = new Third();
+        public int value = 1;
+
+        public class First implements Section
+        {
+            public String name = "";
+        }
+
+        public class Second implements Section
+        {
+            public List<Integer> values = new ArrayList<Integer>();
+        }
+
+        public class Third implements Section
+        {
+            public Nested nested = new Nested();
+
+            public class Nested implements Section
+            {
+                public boolean flag = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import de.cubeisland.engine.reflect.Reflector;
+import de.cubeisland.engine.reflect.codec.yaml.ReflectedYaml;
+import de.cubeisland.engine.reflect.codec.yaml.YamlCodec;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NodeCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Reflector reflector;
+    private File cache;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        cache = folder.newFolder("cache");
+        reflector.getCodecManager().getCodec(YamlCodec.class).setNodeCache(new NodeCache(cache));
+        file = folder.newFile("cached.yml");
+        write(file, "value: 7\nname: cached\n".getBytes("UTF-8"));
+    }
+
+    private static void write(File file, byte[] content) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static byte[] read(File file) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private File snapshot()
+    {
+        File[] files = cache.listFiles();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    /**
+     * Replaces the node of the snapshot keeping its valid header
+     */
+    private void corrupt(File snapshot, int type, int size) throws IOException
+    {
+        int header = 4 + 4 + 4 + file.getCanonicalPath().getBytes("UTF-8").length + 4 * 8;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(read(snapshot), 0, header);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeInt(size);
+        out.close();
+        write(snapshot, bytes.toByteArray());
+    }
+
+    @Test
+    public void testSnapshotIsUsed() throws Exception
+    {
+        assertEquals(7, reflector.load(Cached.class, file, false).value);
+        File snapshot = snapshot();
+        byte[] written = read(snapshot);
+        Cached loaded = reflector.load(Cached.class, file, false);
+        assertEquals(7, loaded.value);
+        assertEquals("cached", loaded.name);
+        assertTrue(Arrays.equals(written, read(snapshot)));
+    }
+
+    @Test
+    public void testHugeStringLength() throws Exception
+    {
+        reflector.load(Cached.class, file, false);
+        File snapshot = snapshot();
+        byte[] valid = read(snapshot);
+        corrupt(snapshot, 3, Integer.MAX_VALUE); // a string
+        byte[] corrupt = read(snapshot);
+        Cached loaded = reflector.load(Cached.class, file, false);
+        assertEquals(7, loaded.value);
+        // the corrupt snapshot got replaced
+        assertFalse(Arrays.equals(corrupt, read(snapshot)));
+        assertTrue(Arrays.equals(valid, read(snapshot)));
+    }
+
+    @Test
+    public void testNegativeMapSize() throws Exception
+    {
+        reflector.load(Cached.class, file, false);
+        File snapshot = snapshot();
+        corrupt(snapshot, 1, -5); // a map
+        assertEquals("cached", reflector.load(Cached.class, file, false).name);
+    }
+
+    @Test
+    public void testUnknownNodeType() throws Exception
+    {
+        reflector.load(Cached.class, file, false);
+        File snapshot = snapshot();
+        corrupt(snapshot, 99, 0);
+        assertEquals("cached", reflector.load(Cached.class, file, false).name);
+    }
+
+    public static class Cached extends ReflectedYaml
+    {
+        public int value = 0;
+        public String name = "";
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.yaml;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import de.cubeisland.engine.reflect.ReflectedFile;
+import de.cubeisland.engine.reflect.Reflector;
+import de.cubeisland.engine.reflect.exception.CodecIOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ReflectedFileTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Reflector reflector;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+    }
+
+    @Test
+    public void testFileOnlyCodec() throws Exception
+    {
+        FileOnlyYamlCodec codec = reflector.getCodecManager().getCodec(FileOnlyYamlCodec.class);
+        File file = folder.newFile("fileonly.yml");
+        FileOnly reflected = reflector.create(FileOnly.class);
+        assertNull(codec.toBytes(codec.convertReflected(reflected), reflected));
+        reflected.text = "written";
+        reflected.save(file);
+        assertEquals("written", reflector.load(FileOnly.class, file, false).text);
+    }
+
+    @Test
+    public void testUnchangedSaveKeepsModificationTime() throws Exception
+    {
+        File file = folder.newFile("unchanged.yml");
+        Plain reflected = reflector.create(Plain.class);
+        reflected.text = "first";
+        reflected.save(file);
+        long old = 1000000000000L;
+        assertEquals(true, file.setLastModified(old));
+        reflected.save(file);
+        assertEquals(old, file.lastModified());
+        reflected.text = "second";
+        reflected.save(file);
+        assertFalse(old == file.lastModified());
+        assertEquals("second", reflector.load(Plain.class, file, false).text);
+    }
+
+    @Test
+    public void testFailedSerializationKeepsFile() throws Exception
+    {
+        File file = folder.newFile("failing.yml");
+        write(file, "text: kept\n");
+        Failing reflected = reflector.create(Failing.class);
+        reflected.save(file);
+        assertEquals("kept", reflector.load(FileOnly.class, file, false).text);
+        assertFalse(reflected.saved);
+        assertEquals(1, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testFailedSerializationKeepsFileForFileOnlyCodec() throws Exception
+    {
+        File file = folder.newFile("failing.yml");
+        write(file, "text: kept\n");
+        FailingFileOnly reflected = reflector.create(FailingFileOnly.class);
+        reflected.save(file);
+        assertEquals("kept", reflector.load(FileOnly.class, file, false).text);
+        assertFalse(reflected.saved);
+        assertEquals(1, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testFailedSerializationThrowsWhenStrict() throws Exception
+    {
+        File file = folder.newFile("failing.yml");
+        write(file, "text: kept\n");
+        Failing reflected = reflector.create(Failing.class);
+        reflected.strict = true;
+        try
+        {
+            reflected.save(file);
+            fail("The failed serialization was not reported");
+        }
+        catch (CodecIOException ignored)
+        {
+        }
+        assertEquals("kept", reflector.load(FileOnly.class, file, false).text);
+    }
+
+    private static void write(File file, String content) throws IOException
+    {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try
+        {
+            writer.write(content);
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * A Writer failing on every write
+     */
+    private static class FailingWriter extends Writer
+    {
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException
+        {
+            throw new IOException("Failing on purpose");
+        }
+
+        @Override
+        public Writer append(CharSequence csq) throws IOException
+        {
+            throw new IOException("Failing on purpose");
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    public static class FailingYamlCodec extends YamlCodec
+    {
+        @Override
+        public Writer newOutput(OutputStream os)
+        {
+            return new FailingWriter();
+        }
+    }
+
+    public static class FailingFileOnlyYamlCodec extends YamlCodec
+    {
+        @Override
+        public Writer newOutput(File f)
+        {
+            return new FailingWriter();
+        }
+
+        @Override
+        public Writer newOutput(OutputStream os)
+        {
+            return null;
+        }
+    }
+
+    public static class Failing extends ReflectedFile<FailingYamlCodec, Reader, Writer>
+    {
+        public String text = "replaced";
+        public transient boolean strict = false;
+        public transient boolean saved = false;
+
+        @Override
+        public boolean useStrictExceptionPolicy()
+        {
+            return strict;
+        }
+
+        @Override
+        public void onSaved(File savedTo)
+        {
+            this.saved = true;
+        }
+    }
+
+    public static class FailingFileOnly extends ReflectedFile<FailingFileOnlyYamlCodec, Reader, Writer>
+    {
+        public String text = "replaced";
+        public transient boolean saved = false;
+
+        @Override
+        public boolean useStrictExceptionPolicy()
+        {
+            return false;
+        }
+
+        @Override
+        public void onSaved(File savedTo)
+        {
+            this.saved = true;
+        }
+    }
+
+    /**
+     * A codec that can only write into files like codecs written before Outputs on streams got introduced
+     */
+    public static class FileOnlyYamlCodec extends YamlCodec
+    {
+        @Override
+        public Writer newOutput(File f) throws IOException
+        {
+            return new OutputStreamWriter(new FileOutputStream(f), CHARSET);
+        }
+
+        @Override
+        public Writer newOutput(OutputStream os)
+        {
+            return null;
+        }
+    }
+
+    public static class Plain extends ReflectedYaml
+    {
+        public String text = "default";
+    }
+
+    public static class FileOnly extends ReflectedFile<FileOnlyYamlCodec, Reader, Writer>
+    {
+        public String text = "default";
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.yaml;
+
+import java.io.StringReader;
+import java.util.List;
+
+import de.cubeisland.engine.converter.node.ByteNode;
+import de.cubeisland.engine.converter.node.IntNode;
+import de.cubeisland.engine.converter.node.ListNode;
+import de.cubeisland.engine.converter.node.LongNode;
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.converter.node.Node;
+import de.cubeisland.engine.converter.node.StringNode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class YamlNodeFactoryTest
+{
+    private final YamlNodeFactory factory = new YamlNodeFactory();
+
+    private MapNode compose(String yaml) throws Exception
+    {
+        return factory.compose(new StringReader(yaml));
+    }
+
+    @Test
+    public void testMergeKeys() throws Exception
+    {
+        MapNode node = compose("base: &base\n  a: 1\n  b: 2\n" +
+                                   "other: &other\n  c: 3\n" +
+                                   "single:\n  <<: *base\n  b: 20\n" +
+                                   "multiple:\n  <<: [*base, *other]\n");
+        MapNode single = (MapNode)node.get("single");
+        assertEquals(1, single.get("a").getValue());
+        assertEquals(20, single.get("b").getValue());
+        assertNull(single.get("<<"));
+        MapNode multiple = (MapNode)node.get("multiple");
+        assertEquals(1, multiple.get("a").getValue());
+        assertEquals(2, multiple.get("b").getValue());
+        assertEquals(3, multiple.get("c").getValue());
+    }
+
+    @Test
+    public void testBinary() throws Exception
+    {
+        MapNode node = compose("data: !!binary |\n  AQL/\n  gA==\n");
+        Node data = node.get("data");
+        assertTrue(data instanceof ListNode);
+        List<Node> bytes = ((ListNode)data).getValue();
+        byte[] expected = {1, 2, -1, -128};
+        assertEquals(expected.length, bytes.size());
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertTrue(bytes.get(i) instanceof ByteNode);
+            assertEquals(expected[i], bytes.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void testIntegerNarrowing() throws Exception
+    {
+        MapNode node = compose("int: 2147483647\n" +
+                                   "negative: -2147483648\n" +
+                                   "long: 2147483648\n" +
+                                   "hex: 0x10\n" +
+                                   "octal: 010\n" +
+                                   "binary: 0b11\n" +
+                                   "sexagesimal: 1:30\n" +
+                                   "huge: 99999999999999999999\n");
+        assertEquals(Integer.MAX_VALUE, node.get("int").getValue());
+        assertTrue(node.get("int") instanceof IntNode);
+        assertTrue(node.get("negative") instanceof IntNode);
+        assertEquals(Integer.MIN_VALUE, node.get("negative").getValue());
+        assertTrue(node.get("long") instanceof LongNode);
+        assertEquals(2147483648L, node.get("long").getValue());
+        assertEquals(16, node.get("hex").getValue());
+        assertEquals(8, node.get("octal").getValue());
+        assertEquals(3, node.get("binary").getValue());
+        assertEquals(90, node.get("sexagesimal").getValue());
+        assertTrue(node.get("huge") instanceof StringNode);
+    }
+}
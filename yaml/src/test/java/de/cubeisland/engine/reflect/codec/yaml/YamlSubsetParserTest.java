@@ -0,0 +1,94 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.yaml;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.reflect.ReflectedTest;
+import de.cubeisland.engine.reflect.Reflector;
+import de.cubeisland.engine.reflect.codec.yaml.YamlSubsetParser.UnsupportedSyntaxException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.cubeisland.engine.reflect.util.AssertionUtils.assertEqualsDeep;
+import static org.junit.Assert.assertEquals;
+
+public class YamlSubsetParserTest
+{
+    private Reflector reflector;
+    private YamlCodec codec;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        codec = reflector.getCodecManager().getCodec(YamlCodec.class);
+        codec.setSubsetParserEnabled(true);
+    }
+
+    @Test
+    public void testFastPath() throws Exception
+    {
+        ReflectedTest expected = ReflectedTest.getDefaultReflectedTest(reflector);
+        StringWriter writer = new StringWriter();
+        codec.saveReflected(expected, writer);
+        String text = writer.toString();
+
+        ReflectedTest reflected = reflector.create(ReflectedTest.class);
+        codec.loadReflected(reflected, new StringReader(text));
+        assertEquals(1, codec.getSubsetParsedCount());
+        assertEquals(0, codec.getSubsetFallbackCount());
+        assertEqualsDeep(codec.getConverterManager(), expected, reflected);
+
+        // the subset parser builds the same nodes as SnakeYAML
+        YamlNodeFactory factory = new YamlNodeFactory();
+        MapNode parsed = new YamlSubsetParser(factory, text).parse();
+        MapNode composed = factory.compose(new StringReader(text));
+        assertEquals(composed.asString(), parsed.asString());
+    }
+
+    @Test
+    public void testFallback() throws Exception
+    {
+        ReflectedTest expected = ReflectedTest.getDefaultReflectedTest(reflector);
+        StringWriter writer = new StringWriter();
+        codec.saveReflected(expected, writer);
+        // flow mappings and anchors are not written by the codec
+        String text = writer.toString().replace("bool: true", "bool: &anchor true")
+                      + "\nflow: {a: 1, b: [2, 3]}\n";
+
+        ReflectedTest reflected = reflector.create(ReflectedTest.class);
+        codec.loadReflected(reflected, new StringReader(text));
+        assertEquals(0, codec.getSubsetParsedCount());
+        assertEquals(1, codec.getSubsetFallbackCount());
+        assertEqualsDeep(codec.getConverterManager(), expected, reflected);
+    }
+
+    @Test(expected = UnsupportedSyntaxException.class)
+    public void testUnsupportedSyntax() throws Exception
+    {
+        new YamlSubsetParser(new YamlNodeFactory(), "key: {a: 1}\n").parse();
+    }
+}
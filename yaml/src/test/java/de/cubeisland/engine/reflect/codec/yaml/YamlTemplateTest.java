@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Cube Island
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package de.cubeisland.engine.reflect.codec.yaml;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+
+import de.cubeisland.engine.converter.node.MapNode;
+import de.cubeisland.engine.reflect.Reflected;
+import de.cubeisland.engine.reflect.ReflectedTest;
+import de.cubeisland.engine.reflect.Reflector;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class YamlTemplateTest
+{
+    private Reflector reflector;
+    private YamlCodec codec;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        reflector = new Reflector();
+        codec = reflector.getCodecManager().getCodec(YamlCodec.class);
+    }
+
+    private String save(Reflected reflected, boolean templates)
+    {
+        codec.setTemplatesEnabled(templates);
+        StringWriter writer = new StringWriter();
+        codec.saveReflected(reflected, writer);
+        return writer.toString();
+    }
+
+    /**
+     * The default ReflectedTest as written by the emitter before templates got introduced
+     */
+    private String readExpected() throws Exception
+    {
+        Reader reader = new InputStreamReader(this.getClass().getResourceAsStream("ReflectedTest.yml"), "UTF-8");
+        try
+        {
+            StringBuilder sb = new StringBuilder();
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1)
+            {
+                sb.append(buffer, 0, read);
+            }
+            return sb.toString();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSameOutputAsPreviousEmitter() throws Exception
+    {
+        ReflectedTest reflected = ReflectedTest.getDefaultReflectedTest(reflector);
+        String expected = readExpected();
+        assertEquals(expected, save(reflected, false));
+        assertEquals(expected, save(reflected, true));
+        assertEquals(expected, save(reflected, true));
+    }
+
+    @Test
+    public void testDynamicMaps() throws Exception
+    {
+        ReflectedTest reflected = ReflectedTest.getDefaultReflectedTest(reflector);
+        assertEquals(save(reflected, false), save(reflected, true));
+        for (int i = 0; i < YamlTemplate.MAX_KEYS * 2; i++)
+        {
+            reflected.maps.map1.put("key" + i, i);
+        }
+        String expected = save(reflected, false);
+        assertEquals(expected, save(reflected, true));
+        assertEquals(expected, save(reflected, true));
+    }
+
+    @Test
+    public void testSaveWithoutReflected() throws Exception
+    {
+        ReflectedTest reflected = ReflectedTest.getDefaultReflectedTest(reflector);
+        MapNode node = codec.convertReflected(reflected);
+        codec.setTemplatesEnabled(false);
+        StringWriter expected = new StringWriter();
+        codec.save(node, expected, null);
+        codec.setTemplatesEnabled(true);
+        StringWriter writer = new StringWriter();
+        codec.save(node, writer, null);
+        assertEquals(expected.toString(), writer.toString());
+    }
+}
@@ -25,6 +25,15 @@ package de.cubeisland.engine.reflect.yaml;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import de.cubeisland.engine.reflect.ReflectedTest;
 import de.cubeisland.engine.reflect.ReflectedTest2;
 import de.cubeisland.engine.reflect.Reflector;
@@ -35,6 +44,7 @@ import org.junit.Test;
 
 import static de.cubeisland.engine.reflect.ReflectedFieldShadowing.ReflectedFieldShadowing2;
 import static de.cubeisland.engine.reflect.util.AssertionUtils.assertEqualsDeep;
+import static org.junit.Assert.assertSame;
 
 
 public class YamlReflectedTest
@@ -84,6 +94,64 @@ public class YamlReflectedTest
         assertEqualsDeep(codec.getConverterManager(), test2, reflected);
     }
 
+    @Test
+    public void testSubsetParser() throws Exception
+    {
+        codec.setSubsetParserEnabled(true);
+        FileWriter writer = new FileWriter(file);
+        codec.saveReflected(test1, writer);
+        writer.close();
+        final ReflectedTest reflected = factory.create(ReflectedTest.class);
+        FileReader reader = new FileReader(file);
+        codec.loadReflected(reflected, reader);
+        reader.close();
+        file.delete();
+        assertEqualsDeep(codec.getConverterManager(), test1, reflected);
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception
+    {
+        final Reflector reflector = new Reflector();
+        final int threads = 8;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<YamlCodec>> futures = new ArrayList<Future<YamlCodec>>();
+        for (int i = 0; i < threads; i++)
+        {
+            futures.add(executor.submit(new Callable<YamlCodec>()
+            {
+                public YamlCodec call() throws Exception
+                {
+                    barrier.await();
+                    YamlCodec codec = reflector.getCodecManager().getCodec(YamlCodec.class);
+                    for (int j = 0; j < 50; j++)
+                    {
+                        ReflectedTest expected = ReflectedTest.getDefaultReflectedTest(reflector);
+                        StringWriter writer = new StringWriter();
+                        codec.saveReflected(expected, writer);
+                        ReflectedTest reflected = reflector.create(ReflectedTest.class);
+                        codec.loadReflected(reflected, new StringReader(writer.toString()));
+                        assertEqualsDeep(codec.getConverterManager(), expected, reflected);
+                    }
+                    return codec;
+                }
+            }));
+        }
+        try
+        {
+            YamlCodec codec = futures.get(0).get();
+            for (Future<YamlCodec> future : futures)
+            {
+                assertSame(codec, future.get());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
     @Test(expected = DuplicatedPathException.class)
     public void test3() throws Exception
     {